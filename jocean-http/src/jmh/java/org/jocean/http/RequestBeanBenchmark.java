@@ -0,0 +1,82 @@
+package org.jocean.http;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import rx.functions.Action1;
+
+/**
+ * per-request cost of encoding JAX-RS annotated bean into HttpRequest (MessageUtil.toRequest):
+ *  @Path's host & path, @QueryParam(s) into uri and @HeaderParam(s) into headers,
+ * and the reverse direction of injecting query & header params into bean (request2QueryParams & request2HeaderParams).
+ *
+ * run with gc profiler to get allocation per request (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBeanBenchmark {
+
+    @Path("http://api.example.com/v1/orders")
+    public static class OrderReq {
+        @QueryParam("orderId")
+        public String orderId = "20180808000001";
+
+        @QueryParam("page")
+        public Integer page = 3;
+
+        @QueryParam("size")
+        public Integer size = 20;
+
+        @HeaderParam("X-Trace-Id")
+        public String traceId = "7f3a9c21";
+
+        @HeaderParam("X-Client")
+        public String client = "jocean-http";
+    }
+
+    private final OrderReq _req = new OrderReq();
+
+    private final Action1<Object> _toRequest = MessageUtil.toRequest(this._req);
+
+    private final HttpRequest _inbound;
+    {
+        this._inbound = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/v1/orders");
+        this._toRequest.call(this._inbound);
+    }
+
+    @Benchmark
+    public HttpRequest encode() {
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "");
+        this._toRequest.call(request);
+        return request;
+    }
+
+    @Benchmark
+    public OrderReq decode() {
+        final OrderReq req = new OrderReq();
+        MessageUtil.request2QueryParams(this._inbound, req);
+        MessageUtil.request2HeaderParams(this._inbound, req);
+        return req;
+    }
+}
@@ -0,0 +1,125 @@
+package org.jocean.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jocean.http.util.RxNettys;
+import org.jocean.idiom.DisposableWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import rx.Observable;
+
+/**
+ * decode xml list response split into ByteBufSlice(s) of sliceSize bytes:
+ *  aggregate: MessageUtil.decodeXmlAs, composite all slices then bind whole response
+ *  streaming: MessageUtil.decodeXmlElementsAs, aalto async parser over each slice, bind & emit each item
+ *
+ * run with gc profiler to compare allocation per decode (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlDecodeBenchmark {
+
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    public static class Resp {
+        public String code;
+
+        @JacksonXmlElementWrapper(localName = "items")
+        @JacksonXmlProperty(localName = "item")
+        public List<Item> items;
+    }
+
+    @Param({"10", "1000"})
+    public int items;
+
+    @Param({"8192"})
+    public int sliceSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><resp><code>OK</code><items>");
+        for (int idx = 0; idx < this.items; idx++) {
+            sb.append("<item><id>").append(idx).append("</id><name>name-").append(idx).append("</name></item>");
+        }
+        sb.append("</items></resp>");
+        final byte[] bytes = sb.toString().getBytes(CharsetUtil.UTF_8);
+
+        this._chunks = new ArrayList<>();
+        for (int pos = 0; pos < bytes.length; pos += this.sliceSize) {
+            final byte[] chunk = new byte[Math.min(this.sliceSize, bytes.length - pos)];
+            System.arraycopy(bytes, pos, chunk, 0, chunk.length);
+            this._chunks.add(chunk);
+        }
+    }
+
+    @Benchmark
+    public int aggregate() {
+        return MessageUtil.decodeXmlAs(body(content()), Resp.class).toBlocking().single().items.size();
+    }
+
+    @Benchmark
+    public int streaming() {
+        return MessageUtil.decodeXmlElementsAs(body(content()), "item", Item.class).count().toBlocking().single();
+    }
+
+    private Observable<ByteBufSlice> content() {
+        final List<ByteBufSlice> slices = new ArrayList<>(this._chunks.size());
+        for (final byte[] chunk : this._chunks) {
+            final Observable<DisposableWrapper<ByteBuf>> element =
+                    Observable.just(RxNettys.wrap4release(Unpooled.wrappedBuffer(chunk)));
+            slices.add(new ByteBufSlice() {
+                @Override
+                public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
+                    return element;
+                }
+                @Override
+                public void step() {
+                }});
+        }
+        return Observable.from(slices);
+    }
+
+    private static MessageBody body(final Observable<ByteBufSlice> content) {
+        return new MessageBody() {
+            @Override
+            public String contentType() {
+                return "application/xml";
+            }
+            @Override
+            public int contentLength() {
+                return -1;
+            }
+            @Override
+            public Observable<? extends ByteBufSlice> content() {
+                return content;
+            }};
+    }
+
+    private List<byte[]> _chunks;
+}
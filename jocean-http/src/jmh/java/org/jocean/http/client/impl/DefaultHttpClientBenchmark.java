@@ -0,0 +1,213 @@
+package org.jocean.http.client.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jocean.http.Feature;
+import org.jocean.http.MessageUtil;
+import org.jocean.http.client.HttpClient;
+import org.jocean.http.util.HttpHandlers;
+import org.jocean.http.util.Nettys;
+import org.jocean.http.util.TransportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import rx.Observable;
+import rx.functions.Action2;
+import rx.functions.Func0;
+import rx.functions.Func2;
+
+/**
+ * end-to-end cost of one MessageUtil.interact(...).execution() against in-process netty echo server:
+ *  transport: local channel or loopback tcp
+ *  pooled: reuse channel by DefaultChannelPool or create channel for each interaction
+ *  bodySize: request & response body size in bytes
+ *  ssl: with or without TLS
+ *  h2: HTTP/1.1 or HTTP/2 (Feature.ENABLE_HTTP2, h2c prior knowledge or h2 via ALPN with ssl),
+ *      with h2 each interaction is one stream of shared connection, so pooled makes no difference
+ *
+ * run with gc profiler (see build.gradle jmh block) to get allocation rate (gc.alloc.rate.norm),
+ * and SampleTime mode to get p0.99 latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultHttpClientBenchmark {
+
+    private static final AtomicInteger _ACCEPT_ID = new AtomicInteger(0);
+
+    @Param({"local", "tcp"})
+    public String transport;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    @Param({"16", "65536"})
+    public int bodySize;
+
+    @Param({"false", "true"})
+    public boolean ssl;
+
+    @Param({"false", "true"})
+    public boolean h2;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final SslContext serverSslCtx;
+        final List<Feature> features = new ArrayList<>();
+        if (this.ssl) {
+            final SelfSignedCertificate ssc = new SelfSignedCertificate();
+            final SslContextBuilder serverBuilder = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey());
+            final SslContextBuilder clientBuilder = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE);
+            if (this.h2) {
+                serverBuilder.applicationProtocolConfig(_H2_ALPN);
+                clientBuilder.applicationProtocolConfig(_H2_ALPN);
+            }
+            serverSslCtx = serverBuilder.build();
+            features.add(new Feature.ENABLE_SSL(clientBuilder.build()));
+        } else {
+            serverSslCtx = null;
+        }
+        if (this.h2) {
+            features.add(Feature.ENABLE_HTTP2);
+        }
+        this._features = features.toArray(Feature.EMPTY_FEATURES);
+
+        if ("local".equals(this.transport)) {
+            this._server = EchoServer.startLocal("bench-" + _ACCEPT_ID.incrementAndGet(), serverSslCtx, this.h2);
+            this._client = localClient((LocalAddress)this._server.localAddress(), this.pooled);
+            this._uri = (this.ssl ? "https" : "http") + "://127.0.0.1/echo";
+        } else {
+            this._server = EchoServer.startTcp(serverSslCtx, this.h2);
+            this._client = new DefaultHttpClient(1, this.pooled, TransportType.NIO);
+            this._uri = (this.ssl ? "https" : "http") + "://127.0.0.1:"
+                    + ((InetSocketAddress)this._server.localAddress()).getPort() + "/echo";
+        }
+
+        this._content = new byte[this.bodySize];
+        new Random(this.bodySize).nextBytes(this._content);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        this._client.close();
+        this._server.close();
+    }
+
+    @Benchmark
+    public int interact() {
+        return MessageUtil.interact(this._client)
+                .method(HttpMethod.POST)
+                .uri(this._uri)
+                .feature(this._features)
+                .body(MessageUtil.toBody(this._content, "application/octet-stream", _WRITE_BYTES))
+                .execution()
+                .compose(MessageUtil.responseAs(Integer.class, _COUNT_BYTES))
+                .toBlocking()
+                .single();
+    }
+
+    private static DefaultHttpClient localClient(final LocalAddress address, final boolean pooled) {
+        return new DefaultHttpClient(new AbstractChannelCreator() {
+            @Override
+            protected void initializeBootstrap(final Bootstrap bootstrap) {
+                bootstrap.group(new DefaultEventLoopGroup(1)).channel(LocalChannel.class);
+            }},
+            pooled ? new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE) : Nettys.unpoolChannels()) {
+            //  uri's host:port always route to local address
+            @Override
+            public InitiatorBuilder initiator() {
+                final InitiatorBuilder builder = super.initiator();
+                builder.remoteAddress(address);
+                return new InitiatorBuilder() {
+                    @Override
+                    public InitiatorBuilder remoteAddress(final SocketAddress remoteAddress) {
+                        return this;
+                    }
+
+                    @Override
+                    public InitiatorBuilder remoteAddress(final Func0<SocketAddress> remoteAddressProvider) {
+                        return this;
+                    }
+
+                    @Override
+                    public InitiatorBuilder feature(final Feature... features) {
+                        builder.feature(features);
+                        return this;
+                    }
+
+                    @Override
+                    public Observable<? extends HttpInitiator> build() {
+                        return builder.build();
+                    }};
+            }
+        };
+    }
+
+    private static final ApplicationProtocolConfig _H2_ALPN = new ApplicationProtocolConfig(
+            ApplicationProtocolConfig.Protocol.ALPN,
+            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+            ApplicationProtocolNames.HTTP_2);
+
+    private static final Action2<Object, OutputStream> _WRITE_BYTES = new Action2<Object, OutputStream>() {
+        @Override
+        public void call(final Object bytes, final OutputStream out) {
+            try {
+                out.write((byte[])bytes);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        }};
+
+    private static final Func2<InputStream, Class<Integer>, Integer> _COUNT_BYTES =
+            new Func2<InputStream, Class<Integer>, Integer>() {
+        @Override
+        public Integer call(final InputStream is, final Class<Integer> type) {
+            try {
+                return is.available();
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        }};
+
+    private EchoServer _server;
+    private HttpClient _client;
+    private String _uri;
+    private Feature[] _features;
+    private byte[] _content;
+}
@@ -0,0 +1,109 @@
+package org.jocean.http.client.impl;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.SslContext;
+
+/**
+ * plain netty http server for benchmark: echo request's content as response,
+ * keep server side cost minimal & stable, so the measured cost is mostly client's.
+ * with h2, serve HTTP/2 (h2c with prior knowledge, or h2 via ALPN when sslCtx present) only.
+ */
+class EchoServer implements AutoCloseable {
+
+    static EchoServer startLocal(final String acceptId, final SslContext sslCtx, final boolean h2) {
+        return new EchoServer(new DefaultEventLoopGroup(1), LocalServerChannel.class,
+                new LocalAddress(acceptId), sslCtx, h2);
+    }
+
+    static EchoServer startTcp(final SslContext sslCtx, final boolean h2) {
+        return new EchoServer(new NioEventLoopGroup(1), NioServerSocketChannel.class,
+                new InetSocketAddress("127.0.0.1", 0), sslCtx, h2);
+    }
+
+    private EchoServer(final EventLoopGroup group,
+            final Class<? extends ServerChannel> channelType,
+            final SocketAddress localAddress,
+            final SslContext sslCtx,
+            final boolean h2) {
+        this._group = group;
+        this._server = new ServerBootstrap()
+            .group(group)
+            .channel(channelType)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(final Channel channel) throws Exception {
+                    if (null != sslCtx) {
+                        channel.pipeline().addLast(sslCtx.newHandler(channel.alloc()));
+                    }
+                    if (h2) {
+                        channel.pipeline().addLast(Http2MultiplexCodecBuilder.forServer(H2_STREAM).build());
+                    } else {
+                        channel.pipeline().addLast(new HttpServerCodec(),
+                                new HttpObjectAggregator(1024 * 1024),
+                                new EchoHandler());
+                    }
+                }})
+            .bind(localAddress).syncUninterruptibly().channel();
+    }
+
+    private static final ChannelHandler H2_STREAM = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel stream) throws Exception {
+            stream.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true),
+                    new HttpObjectAggregator(1024 * 1024),
+                    new EchoHandler());
+        }};
+
+    private static final class EchoHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpRequest req)
+                throws Exception {
+            final FullHttpResponse response = new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, OK, req.content().retain());
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            HttpUtil.setKeepAlive(response, HttpUtil.isKeepAlive(req));
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    SocketAddress localAddress() {
+        return this._server.localAddress();
+    }
+
+    @Override
+    public void close() {
+        this._server.close().syncUninterruptibly();
+        this._group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    private final EventLoopGroup _group;
+    private final Channel _server;
+}
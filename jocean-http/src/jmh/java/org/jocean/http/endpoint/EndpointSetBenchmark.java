@@ -0,0 +1,82 @@
+package org.jocean.http.endpoint;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jocean.http.Interact;
+import org.jocean.http.TypedSPI;
+import org.jocean.http.endpoint.internal.DefaultEndpoint;
+import org.jocean.http.endpoint.internal.DefaultEndpointSet;
+import org.jocean.http.endpoint.internal.IndexedEndpoints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rx.Observable;
+import rx.Observable.Transformer;
+
+/**
+ * per-interact cost of EndpointSet.of(spi): select endpoint of type and set uri to Interact,
+ * with endpoints of all types kept in plain CopyOnWriteArrayList (scan) or IndexedEndpoints (type index).
+ *
+ * run with gc profiler to get allocation per interact (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndpointSetBenchmark {
+
+    @Param({"list", "indexed"})
+    public String endpoints;
+
+    @Param({"300"})
+    public int types;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Collection<Endpoint> endpoints = "indexed".equals(this.endpoints)
+                ? new IndexedEndpoints() : new CopyOnWriteArrayList<Endpoint>();
+        for (int type = 0; type < this.types; type++) {
+            for (int idx = 0; idx < 3; idx++) {
+                endpoints.add(new DefaultEndpoint("svc" + type, "http://10.0." + type + "." + idx + ":8080"));
+            }
+        }
+        final DefaultEndpointSet endpointSet = new DefaultEndpointSet(endpoints);
+        final String type = "svc" + (this.types / 2);
+        this._of = endpointSet.of(new TypedSPI() {
+            @Override
+            public String type() {
+                return type;
+            }});
+        this._interact = Observable.just((Interact)Proxy.newProxyInstance(Interact.class.getClassLoader(),
+                new Class<?>[]{Interact.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return proxy;
+                    }}));
+    }
+
+    @Benchmark
+    public Interact of() {
+        return this._interact.compose(this._of).toBlocking().single();
+    }
+
+    private Transformer<Interact, Interact> _of;
+    private Observable<Interact> _interact;
+}
@@ -0,0 +1,58 @@
+package org.jocean.http.server.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * per-trade cost of DefaultHttpTrade without any socket & codec:
+ *  create trade on EmbeddedChannel, push request's HttpObjects as inbound,
+ *  consume whole request then write response, drain & release outbound.
+ *
+ * run with gc profiler to get allocation per trade (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedHttpTradeBenchmark {
+
+    @Param({"GET", "SMALL_POST", "STREAMED_UPLOAD"})
+    public TradeWorkload workload;
+
+    @Benchmark
+    public int trade() {
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        final DefaultHttpTrade trade = new DefaultHttpTrade(channel);
+        trade.outbound(TradeWorkload.respondAfterInbound(trade));
+
+        for (final HttpObject msg : this.workload.request()) {
+            channel.writeOneInbound(msg);
+        }
+        channel.flushInbound();
+
+        int outmsgs = 0;
+        Object outmsg;
+        while (null != (outmsg = channel.readOutbound())) {
+            outmsgs++;
+            ReferenceCountUtil.release(outmsg);
+        }
+        channel.finishAndReleaseAll();
+        return outmsgs;
+    }
+}
@@ -0,0 +1,143 @@
+package org.jocean.http.server.impl;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.jocean.http.Feature;
+import org.jocean.http.server.HttpServerBuilder.HttpTrade;
+import org.jocean.http.util.Nettys.ServerChannelAware;
+import org.jocean.http.util.TransportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.util.concurrent.Promise;
+import rx.Subscription;
+import rx.functions.Action1;
+
+/**
+ * requests/sec & latency of DefaultHttpServerBuilder over loopback tcp:
+ *  each benchmark thread own one keep-alive connection, send request & wait for response.
+ *
+ * run with gc profiler to get allocation per request (gc.alloc.rate.norm, client side included).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackHttpServerBenchmark {
+
+    @Param({"GET", "SMALL_POST", "STREAMED_UPLOAD"})
+    public TradeWorkload workload;
+
+    @Setup(Level.Trial)
+    public void startServer() {
+        this._builder = new DefaultHttpServerBuilder(1, 1, TransportType.NIO);
+        final BoundAddress bound = new BoundAddress();
+        this._server = this._builder.defineServer(new InetSocketAddress("127.0.0.1", 0), bound)
+            .subscribe(new Action1<HttpTrade>() {
+                @Override
+                public void call(final HttpTrade trade) {
+                    trade.outbound(TradeWorkload.respondAfterInbound(trade));
+                }});
+        this._address = bound.localAddress();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        this._server.unsubscribe();
+        this._builder.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        @Setup(Level.Trial)
+        public void connect(final LoopbackHttpServerBenchmark server) {
+            this._group = new NioEventLoopGroup(1);
+            this._channel = new Bootstrap()
+                .group(this._group)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(final Channel channel) throws Exception {
+                        channel.pipeline().addLast(new HttpClientCodec(),
+                            new HttpObjectAggregator(64 * 1024),
+                            new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                @Override
+                                protected void channelRead0(final ChannelHandlerContext ctx,
+                                        final FullHttpResponse response) throws Exception {
+                                    _response.trySuccess(response.status().code());
+                                }});
+                    }})
+                .connect(server._address).syncUninterruptibly().channel();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            this._channel.close().syncUninterruptibly();
+            this._group.shutdownGracefully().syncUninterruptibly();
+        }
+
+        int interact(final TradeWorkload workload) {
+            this._response = this._channel.eventLoop().newPromise();
+            final HttpObject[] msgs = workload.request();
+            for (int idx = 0; idx < msgs.length - 1; idx++) {
+                this._channel.write(msgs[idx]);
+            }
+            this._channel.writeAndFlush(msgs[msgs.length - 1]);
+            return this._response.syncUninterruptibly().getNow();
+        }
+
+        private EventLoopGroup _group;
+        private Channel _channel;
+        private volatile Promise<Integer> _response;
+    }
+
+    @Benchmark
+    public int request(final Connection connection) {
+        return connection.interact(this.workload);
+    }
+
+    private static final class BoundAddress implements Feature, ServerChannelAware {
+        @Override
+        public void setServerChannel(final ServerChannel serverChannel) {
+            this._serverChannel = serverChannel;
+        }
+
+        InetSocketAddress localAddress() {
+            return (InetSocketAddress)this._serverChannel.localAddress();
+        }
+
+        private volatile ServerChannel _serverChannel;
+    }
+
+    private DefaultHttpServerBuilder _builder;
+    private Subscription _server;
+    private InetSocketAddress _address;
+}
@@ -0,0 +1,100 @@
+package org.jocean.http.server.impl;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+
+import org.jocean.http.MessageUtil;
+import org.jocean.http.server.HttpServerBuilder.HttpTrade;
+import org.jocean.idiom.DisposableWrapper;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+/**
+ * request shapes for server side benchmark, each call of request() build fresh messages
+ */
+public enum TradeWorkload {
+    GET {
+        @Override
+        HttpObject[] request() {
+            final HttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/get");
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            return new HttpObject[]{request};
+        }
+    },
+    SMALL_POST {
+        @Override
+        HttpObject[] request() {
+            final HttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/post",
+                    Unpooled.wrappedBuffer(SMALL_BODY));
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, SMALL_BODY.length);
+            return new HttpObject[]{request};
+        }
+    },
+    STREAMED_UPLOAD {
+        @Override
+        HttpObject[] request() {
+            final HttpObject[] msgs = new HttpObject[UPLOAD_CHUNKS + 2];
+            final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+            request.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+            msgs[0] = request;
+            for (int idx = 1; idx <= UPLOAD_CHUNKS; idx++) {
+                msgs[idx] = new DefaultHttpContent(Unpooled.wrappedBuffer(UPLOAD_CHUNK));
+            }
+            msgs[UPLOAD_CHUNKS + 1] = LastHttpContent.EMPTY_LAST_CONTENT;
+            return msgs;
+        }
+    },
+    ;
+
+    abstract HttpObject[] request();
+
+    //  consume (and dispose) whole request, then response 'OK'
+    static Observable<Object> respondAfterInbound(final HttpTrade trade) {
+        return trade.inbound().compose(MessageUtil.AUTOSTEP2DWH)
+                .doOnNext(DISPOSE)
+                .ignoreElements()
+                .cast(Object.class)
+                .concatWith(Observable.defer(new Func0<Observable<Object>>() {
+                    @Override
+                    public Observable<Object> call() {
+                        return Observable.<Object>just(okResponse());
+                    }}));
+    }
+
+    static FullHttpResponse okResponse() {
+        final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, OK,
+                Unpooled.wrappedBuffer(OK_BODY));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, OK_BODY.length);
+        return response;
+    }
+
+    private static final Action1<DisposableWrapper<? extends HttpObject>> DISPOSE =
+            new Action1<DisposableWrapper<? extends HttpObject>>() {
+        @Override
+        public void call(final DisposableWrapper<? extends HttpObject> dwh) {
+            dwh.dispose();
+        }};
+
+    static final int UPLOAD_CHUNKS = 16;
+
+    private static final byte[] SMALL_BODY = new byte[256];
+    private static final byte[] UPLOAD_CHUNK = new byte[8192];
+    private static final byte[] OK_BODY = new byte[]{'O', 'K'};
+}
@@ -0,0 +1,188 @@
+package org.jocean.http;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+import org.jocean.idiom.AnnotationWrapper;
+import org.jocean.idiom.ReflectUtils;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * per-class binding plan of JAX-RS annotated bean, compiled once and cached:
+ *  @Path's value (and its host & raw path), @QueryParam & @HeaderParam fields with their names
+ *  and MethodHandle accessors, so encoding/decoding request for bean needn't scan annotations again.
+ */
+public class BeanPlan {
+
+    private static final ConcurrentMap<Class<?>, BeanPlan> _PLANS = new ConcurrentHashMap<>();
+
+    private static final MethodType _GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType _SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    public static BeanPlan of(final Class<?> cls) {
+        final BeanPlan plan = _PLANS.get(cls);
+        if (null != plan) {
+            return plan;
+        }
+        final BeanPlan newPlan = new BeanPlan(cls);
+        final BeanPlan old = _PLANS.putIfAbsent(cls, newPlan);
+        return null != old ? old : newPlan;
+    }
+
+    public static final class Param {
+        private Param(final Field field, final String name) {
+            this._field = field;
+            this._name = name;
+            final AnnotationWrapper wrapper = field.getAnnotation(AnnotationWrapper.class);
+            this._httpMethod = null != wrapper ? wrapper.value().getSimpleName() : null;
+            try {
+                field.setAccessible(true);
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                this._getter = lookup.unreflectGetter(field).asType(_GETTER_TYPE);
+                this._setter = Modifier.isFinal(field.getModifiers())
+                        ? null : lookup.unreflectSetter(field).asType(_SETTER_TYPE);
+            } catch (final IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public Field field() {
+            return this._field;
+        }
+
+        public String name() {
+            return this._name;
+        }
+
+        public Class<?> type() {
+            return this._field.getType();
+        }
+
+        //  the field explicit annotated HttpMethod via AnnotationWrapper
+        public boolean isAnnotatedOf(final HttpMethod method) {
+            return null != this._httpMethod && this._httpMethod.equals(method.name());
+        }
+
+        public Object get(final Object bean) throws Exception {
+            try {
+                return (Object)this._getter.invokeExact(bean);
+            } catch (final Exception | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public void set(final Object bean, final Object value) throws Exception {
+            if (null == this._setter) {
+                throw new IllegalAccessException("field " + this._field + " is final");
+            }
+            try {
+                this._setter.invokeExact(bean, value);
+            } catch (final Exception | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this._field.toString();
+        }
+
+        private final Field _field;
+        private final String _name;
+        private final String _httpMethod;
+        private final MethodHandle _getter;
+        private final MethodHandle _setter;
+    }
+
+    private BeanPlan(final Class<?> cls) {
+        final Path path = cls.getAnnotation(Path.class);
+        this._path = null != path ? path.value() : null;
+        URI uri = null;
+        URISyntaxException pathError = null;
+        if (null != this._path) {
+            try {
+                uri = new URI(this._path);
+            } catch (final URISyntaxException e) {
+                //  throw when use it as uri, same as before plan cached
+                pathError = e;
+            }
+        }
+        this._pathError = pathError;
+        this._pathHost = null != uri ? uri.getHost() : null;
+        this._pathRawPath = null != uri ? uri.getRawPath() : null;
+        this._queryParams = paramsOf(cls, QueryParam.class);
+        this._headerParams = paramsOf(cls, HeaderParam.class);
+    }
+
+    private static Param[] paramsOf(final Class<?> cls, final Class<? extends Annotation> annotationCls) {
+        final Field[] fields = ReflectUtils.getAnnotationFieldsOf(cls, annotationCls);
+        final Param[] params = new Param[null != fields ? fields.length : 0];
+        for (int idx = 0; idx < params.length; idx++) {
+            params[idx] = new Param(fields[idx], nameOf(fields[idx].getAnnotation(annotationCls)));
+        }
+        return params;
+    }
+
+    private static String nameOf(final Annotation annotation) {
+        if (annotation instanceof QueryParam) {
+            return ((QueryParam)annotation).value();
+        } else if (annotation instanceof HeaderParam) {
+            return ((HeaderParam)annotation).value();
+        } else {
+            return null;
+        }
+    }
+
+    //  @Path's value of bean class, or null if not annotated
+    public String path() {
+        return this._path;
+    }
+
+    public String pathHost() {
+        checkPath();
+        return this._pathHost;
+    }
+
+    public String pathRawPath() {
+        checkPath();
+        return this._pathRawPath;
+    }
+
+    private void checkPath() {
+        if (null != this._pathError) {
+            throw new RuntimeException(this._pathError);
+        }
+    }
+
+    public Param[] queryParams() {
+        return this._queryParams;
+    }
+
+    public Param[] headerParams() {
+        return this._headerParams;
+    }
+
+    private final String _path;
+    private final URISyntaxException _pathError;
+    private final String _pathHost;
+    private final String _pathRawPath;
+    private final Param[] _queryParams;
+    private final Param[] _headerParams;
+}
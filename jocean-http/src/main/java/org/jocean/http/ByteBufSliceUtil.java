@@ -0,0 +1,114 @@
+package org.jocean.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jocean.http.util.Nettys;
+import org.jocean.http.util.RxNettys;
+import org.jocean.idiom.DisposableWrapper;
+import org.jocean.idiom.DisposableWrapperUtil;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+import rx.Observable.Transformer;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+public class ByteBufSliceUtil {
+    private ByteBufSliceUtil() {
+        throw new IllegalStateException("No instances!");
+    }
+
+    //  merge adjacent bufs of each slice into CompositeByteBuf up to maxBytes,
+    //  so outbound send one write (and one http chunk) for each merged buf instead of each small buf
+    public static Func1<ByteBufSlice, ByteBufSlice> gather(final int maxBytes) {
+        return new Func1<ByteBufSlice, ByteBufSlice>() {
+            @Override
+            public ByteBufSlice call(final ByteBufSlice slice) {
+                final Observable<? extends DisposableWrapper<? extends ByteBuf>> cached =
+                        slice.element().compose(gatherBufs(maxBytes)).cache();
+                return new ByteBufSlice() {
+                    @Override
+                    public String toString() {
+                        return new StringBuilder().append("ByteBufSlice [gather(").append(maxBytes)
+                                .append(") from ").append(slice).append("]").toString();
+                    }
+                    @Override
+                    public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
+                        return cached;
+                    }
+                    @Override
+                    public void step() {
+                        slice.step();
+                    }};
+            }};
+    }
+
+    //  gather incrementally: merged buf emitted as soon as next buf exceed maxBytes, not wait for whole slice
+    public static Transformer<DisposableWrapper<? extends ByteBuf>, DisposableWrapper<? extends ByteBuf>> gatherBufs(
+            final int maxBytes) {
+        return new Transformer<DisposableWrapper<? extends ByteBuf>, DisposableWrapper<? extends ByteBuf>>() {
+            @Override
+            public Observable<DisposableWrapper<? extends ByteBuf>> call(
+                    final Observable<DisposableWrapper<? extends ByteBuf>> dwbs) {
+                return Observable.defer(new Func0<Observable<DisposableWrapper<? extends ByteBuf>>>() {
+                    @Override
+                    public Observable<DisposableWrapper<? extends ByteBuf>> call() {
+                        //  source maybe not support backpressure, eg: MessageUtil.fromBufout
+                        return dwbs.onBackpressureBuffer()
+                                .concatWith(Observable.<DisposableWrapper<? extends ByteBuf>>just(_END_OF_BUFS))
+                                .concatMap(new Gatherer(maxBytes));
+                    }});
+            }};
+    }
+
+    private static final DisposableWrapper<? extends ByteBuf> _END_OF_BUFS = RxNettys.wrap4release(Unpooled.EMPTY_BUFFER);
+
+    //  bufs of current group, one Gatherer for each subscription
+    private static final class Gatherer
+        implements Func1<DisposableWrapper<? extends ByteBuf>, Observable<DisposableWrapper<? extends ByteBuf>>> {
+        Gatherer(final int maxBytes) {
+            this._maxBytes = maxBytes;
+        }
+
+        @Override
+        public Observable<DisposableWrapper<? extends ByteBuf>> call(final DisposableWrapper<? extends ByteBuf> dwb) {
+            if (dwb == _END_OF_BUFS) {
+                return this._group.isEmpty() ? Observable.<DisposableWrapper<? extends ByteBuf>>empty()
+                        : Observable.<DisposableWrapper<? extends ByteBuf>>just(merge(this._group));
+            }
+            final int size = dwb.unwrap().readableBytes();
+            DisposableWrapper<? extends ByteBuf> merged = null;
+            if (!this._group.isEmpty() && this._groupBytes + size > this._maxBytes) {
+                merged = merge(this._group);
+                this._group = new ArrayList<>();
+                this._groupBytes = 0;
+            }
+            this._group.add(dwb);
+            this._groupBytes += size;
+            return null != merged ? Observable.<DisposableWrapper<? extends ByteBuf>>just(merged)
+                    : Observable.<DisposableWrapper<? extends ByteBuf>>empty();
+        }
+
+        private final int _maxBytes;
+        private List<DisposableWrapper<? extends ByteBuf>> _group = new ArrayList<>();
+        private int _groupBytes = 0;
+    }
+
+    //  composite retain each buf, dispose merged will release composite and dispose each origin
+    private static DisposableWrapper<? extends ByteBuf> merge(final List<DisposableWrapper<? extends ByteBuf>> dwbs) {
+        if (dwbs.size() == 1) {
+            return dwbs.get(0);
+        }
+        return DisposableWrapperUtil.wrap(Nettys.dwbs2buf(dwbs), new Action1<ByteBuf>() {
+            @Override
+            public void call(final ByteBuf composite) {
+                composite.release();
+                for (final DisposableWrapper<? extends ByteBuf> dwb : dwbs) {
+                    dwb.dispose();
+                }
+            }});
+    }
+}
@@ -2,7 +2,8 @@ package org.jocean.http;
 
 public class CloseException extends RuntimeException {
     private static final long serialVersionUID = 1L;
+    //  signal of close() only, so skip fill stack trace
     public CloseException() {
-        super("close()");
+        super("close()", null, false, false);
     }
 }
@@ -2,9 +2,18 @@ package org.jocean.http;
 
 import java.io.OutputStream;
 
+import org.jocean.idiom.DisposableWrapper;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
 import rx.functions.Action2;
 
 public interface ContentEncoder {
     public String contentType();
     public Action2<Object, OutputStream> encoder();
+
+    //  encode bean into one pooled ByteBuf directly, content length is the buf's readableBytes
+    public interface ToByteBuf extends ContentEncoder {
+        public Observable<DisposableWrapper<ByteBuf>> encodeAsByteBuf(final Object bean);
+    }
 }
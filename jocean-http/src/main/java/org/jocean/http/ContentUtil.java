@@ -1,22 +1,47 @@
 package org.jocean.http;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.core.MediaType;
 
+import org.jocean.http.util.RxNettys;
 import org.jocean.idiom.DisposableWrapper;
-import org.jocean.idiom.DisposableWrapperUtil;
+import org.jocean.idiom.ExceptionUtils;
+import org.jocean.netty.util.BufsOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
 import rx.Observable;
+import rx.Observable.OnSubscribe;
+import rx.Subscriber;
+import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Action2;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
 
 public class ContentUtil {
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ContentUtil.class);
 
     private ContentUtil() {
         throw new IllegalStateException("No instances!");
@@ -34,7 +59,7 @@ public class ContentUtil {
             MessageUtil.serializeToJson(bean, os);
         }};
 
-    public static final ContentEncoder TOXML = new ContentEncoder() {
+    public static final ContentEncoder TOXML = new ContentEncoder.ToByteBuf() {
         @Override
         public String contentType() {
             return MediaType.APPLICATION_XML;
@@ -43,8 +68,13 @@ public class ContentUtil {
         @Override
         public Action2<Object, OutputStream> encoder() {
             return _ASXML;
+        }
+
+        @Override
+        public Observable<DisposableWrapper<ByteBuf>> encodeAsByteBuf(final Object bean) {
+            return encodeAsDwb(bean, _ASXML);
         }};
-    public static final ContentEncoder TOJSON = new ContentEncoder() {
+    public static final ContentEncoder TOJSON = new ContentEncoder.ToByteBuf() {
         @Override
         public String contentType() {
             return MediaType.APPLICATION_JSON;
@@ -52,38 +82,298 @@ public class ContentUtil {
         @Override
         public Action2<Object, OutputStream> encoder() {
             return _ASJSON;
+        }
+        @Override
+        public Observable<DisposableWrapper<ByteBuf>> encodeAsByteBuf(final Object bean) {
+            return encodeAsDwb(bean, _ASJSON);
         }};
 
+    private static final int _PAGE_SIZE = 8192;
+
+    private static final Func0<ByteBuf> _PAGE_ALLOCATOR = new Func0<ByteBuf>() {
+        @Override
+        public ByteBuf call() {
+            return PooledByteBufAllocator.DEFAULT.directBuffer(_PAGE_SIZE, _PAGE_SIZE);
+        }};
+
+    private static final Func1<ByteBuf, ByteBuf> _PAGE_AS_BUF = new Func1<ByteBuf, ByteBuf>() {
+        @Override
+        public ByteBuf call(final ByteBuf page) {
+            return page;
+        }};
+
+    //  encode bean into page-sized pooled direct bufs without intermediate byte[] or reallocate when grows,
+    //  and combine pages as one CompositeByteBuf, caller should release it
+    public static ByteBuf encodeAsByteBuf(final Object bean, final Action2<Object, OutputStream> encoder) {
+        final CompositeByteBuf composite = PooledByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
+        final BufsOutputStream<ByteBuf> bufout = new BufsOutputStream<>(_PAGE_ALLOCATOR, _PAGE_AS_BUF,
+                new Action1<ByteBuf>() {
+                    @Override
+                    public void call(final ByteBuf page) {
+                        composite.addComponent(true, page);
+                    }});
+        boolean encoded = false;
+        try {
+            encoder.call(bean, bufout);
+            encoded = true;
+        } finally {
+            //  last page maybe not full, and all pages released with composite when failed
+            bufout.flush();
+            if (!encoded) {
+                composite.release();
+            }
+        }
+        return composite;
+    }
+
+    private static Observable<DisposableWrapper<ByteBuf>> encodeAsDwb(final Object bean,
+            final Action2<Object, OutputStream> encoder) {
+        return Observable.defer(new Func0<Observable<DisposableWrapper<ByteBuf>>>() {
+            @Override
+            public Observable<DisposableWrapper<ByteBuf>> call() {
+                return Observable.just(RxNettys.wrap4release(encodeAsByteBuf(bean, encoder)));
+            }});
+    }
+
     public static Observable<? extends MessageBody> tobody(final String contentType, final File file) {
-        try (final InputStream is = new FileInputStream(file)) {
-            final int length = is.available();
-            final byte[] bytes = new byte[length];
-            is.read(bytes);
-            return Observable.just(new MessageBody() {
+        if (!file.isFile()) {
+            return Observable.error(new FileNotFoundException(file.toString()));
+        }
+        return Observable.just(filebody(contentType, file, 0, file.length()));
+    }
+
+    //  body of file's bytes [position, position + count)
+    public static Observable<? extends MessageBody> tobody(final String contentType, final File file,
+            final long position, final long count) {
+        if (!file.isFile()) {
+            return Observable.error(new FileNotFoundException(file.toString()));
+        }
+        if (position < 0 || count < 0 || position + count > file.length()) {
+            return Observable.error(new IllegalArgumentException("invalid range [" + position + "," + count
+                    + "] for file " + file + " with length " + file.length()));
+        }
+        return Observable.just(filebody(contentType, file, position, count));
+    }
+
+    private static FileBody filebody(final String contentType, final File file, final long position, final long count) {
+        return new FileBody() {
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+            @Override
+            public int contentLength() {
+                //  larger than 2G send as chunked
+                return count <= Integer.MAX_VALUE ? (int)count : -1;
+            }
+            @Override
+            public File file() {
+                return file;
+            }
+            @Override
+            public long position() {
+                return position;
+            }
+            @Override
+            public long count() {
+                return count;
+            }
+            //  for consumer NOT send body by HttpConnection
+            @Override
+            public Observable<? extends ByteBufSlice> content() {
+                return fileSlices(file, position, count);
+            }
+            @Override
+            public String toString() {
+                return new StringBuilder().append("FileBody [file=").append(file).append(", position=")
+                        .append(position).append(", count=").append(count).append("]").toString();
+            }};
+    }
+
+    private static final int _FILE_SLICE_SIZE = 64 * 1024;
+
+    private static Observable<ByteBufSlice> fileSlices(final File file, final long position, final long count) {
+        return Observable.unsafeCreate(new OnSubscribe<ByteBufSlice>() {
+            @Override
+            public void call(final Subscriber<? super ByteBufSlice> subscriber) {
+                if (!subscriber.isUnsubscribed()) {
+                    final FileChannel channel;
+                    try {
+                        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                    } catch (final IOException e) {
+                        subscriber.onError(e);
+                        return;
+                    }
+                    subscriber.add(Subscriptions.create(new Action0() {
+                        @Override
+                        public void call() {
+                            try {
+                                channel.close();
+                            } catch (final IOException e) {
+                                LOG.warn("exception when close {}, detail: {}", file, ExceptionUtils.exception2detail(e));
+                            }
+                        }}));
+                    new FileSliceEmitter(subscriber, channel, position, position + count).step();
+                }
+            }});
+    }
+
+    //  emit next slice only when prev slice's step() called, so at most one slice's buf read from file
+    //  step() re-entered (eg: step when element completed) will be trampolined
+    //  each slice's buf read once before emitted, so element() replay the same buf and can be subscribed
+    //  after step() (channel closed after last step), buf disposed by consumer as inbound slice's
+    private static final class FileSliceEmitter {
+        FileSliceEmitter(final Subscriber<? super ByteBufSlice> subscriber, final FileChannel channel,
+                final long position, final long end) {
+            this._subscriber = subscriber;
+            this._channel = channel;
+            this._position = position;
+            this._end = end;
+        }
+
+        void step() {
+            if (this._wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                emitNext();
+            } while (this._wip.decrementAndGet() != 0);
+        }
+
+        private void emitNext() {
+            if (this._subscriber.isUnsubscribed()) {
+                return;
+            }
+            if (this._position >= this._end) {
+                this._subscriber.onCompleted();
+                return;
+            }
+            final long position = this._position;
+            final int size = (int)Math.min(_FILE_SLICE_SIZE, this._end - position);
+            final DisposableWrapper<ByteBuf> dwb;
+            try {
+                dwb = RxNettys.wrap4release(readFile(this._channel, position, size));
+            } catch (final IOException e) {
+                this._subscriber.onError(e);
+                return;
+            }
+            this._position += size;
+            this._subscriber.onNext(new ByteBufSlice() {
                 @Override
-                public String contentType() {
-                    return contentType;
+                public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
+                    return Observable.just(dwb);
                 }
+
                 @Override
-                public int contentLength() {
-                    return length;
+                public void step() {
+                    if (this._stepped.compareAndSet(false, true)) {
+                        FileSliceEmitter.this.step();
+                    }
                 }
+
                 @Override
-                public Observable<? extends ByteBufSlice> content() {
-                    return Observable.<ByteBufSlice>just(new ByteBufSlice() {
-                        @Override
-                        public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
-                            return Observable.just(
-                                    DisposableWrapperUtil.wrap(Unpooled.wrappedBuffer(bytes), (Action1<ByteBuf>) null));
-                        }
+                public String toString() {
+                    return new StringBuilder().append("ByteBufSlice [file slice at ").append(position)
+                            .append(" with ").append(size).append(" bytes]").toString();
+                }
 
-                        @Override
-                        public void step() {
-                        }
-                    });
-                }});
-        } catch (final Exception e) {
-            return Observable.error(e);
+                private final AtomicBoolean _stepped = new AtomicBoolean(false);
+            });
+        }
+
+        private final Subscriber<? super ByteBufSlice> _subscriber;
+        private final FileChannel _channel;
+        private final long _end;
+        private long _position;
+        private final AtomicInteger _wip = new AtomicInteger(0);
+    }
+
+    //  positional read, so slices share same FileChannel
+    private static ByteBuf readFile(final FileChannel channel, final long position, final int length)
+            throws IOException {
+        final ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        try {
+            while (buf.isWritable()) {
+                if (buf.writeBytes(channel, position + buf.writerIndex(), buf.writableBytes()) < 0) {
+                    throw new EOFException("reach end of file before " + (position + length));
+                }
+            }
+            return buf;
+        } catch (final IOException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    //  response of file for request, with Range (RFC 7233, single range) support:
+    //      200 for whole file, 206 for satisfiable range, 416 for unsatisfiable range
+    public static Observable<Object> fileResponse(final HttpRequest request, final String contentType, final File file) {
+        if (!file.isFile()) {
+            return Observable.error(new FileNotFoundException(file.toString()));
+        }
+        final long length = file.length();
+        final long[] range = parseRange(request.headers().get(HttpHeaderNames.RANGE), length);
+        final HttpResponse response;
+        final Observable<? extends MessageBody> body;
+        if (null == range) {
+            response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.OK);
+            body = Observable.just(filebody(contentType, file, 0, length));
+        } else if (range.length == 0) {
+            response = new DefaultHttpResponse(request.protocolVersion(),
+                    HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + length);
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            return Observable.<Object>just(response, LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.PARTIAL_CONTENT);
+            response.headers().set(HttpHeaderNames.CONTENT_RANGE,
+                    "bytes " + range[0] + "-" + range[1] + "/" + length);
+            body = Observable.just(filebody(contentType, file, range[0], range[1] - range[0] + 1));
+        }
+        response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        return Observable.<Object>just(response, LastHttpContent.EMPTY_LAST_CONTENT)
+                .compose(MessageUtil.addBody(body));
+    }
+
+    //  return null: no Range or Range can be ignored (invalid or multiple ranges), serve whole file
+    //      empty array: unsatisfiable
+    //      {first, last}: first and last byte pos (inclusive)
+    static long[] parseRange(final String range, final long length) {
+        if (null == range || !range.startsWith(_BYTES_UNIT)) {
+            return null;
+        }
+        final String spec = range.substring(_BYTES_UNIT.length()).trim();
+        if (spec.indexOf(',') >= 0) {
+            return null;
+        }
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            final String firstText = spec.substring(0, dash).trim();
+            final String lastText = spec.substring(dash + 1).trim();
+            if (firstText.isEmpty()) {
+                //  suffix-byte-range-spec: last N bytes
+                final long suffix = Long.parseLong(lastText);
+                if (suffix <= 0 || length == 0) {
+                    return suffix < 0 ? null : new long[0];
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            final long first = Long.parseLong(firstText);
+            final long last = lastText.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastText);
+            if (first < 0 || last < first) {
+                return null;
+            }
+            if (first >= length) {
+                return new long[0];
+            }
+            return new long[]{first, Math.min(last, length - 1)};
+        } catch (final NumberFormatException e) {
+            return null;
         }
     }
+
+    private static final String _BYTES_UNIT = "bytes=";
 }
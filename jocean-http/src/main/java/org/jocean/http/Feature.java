@@ -126,4 +126,31 @@ public interface Feature {
             return "ENABLE_MULTIPART";
         }
     };
+
+    //  client: use HTTP/2 (ALPN h2 when ENABLE_SSL, or h2c with prior knowledge), each initiator as one stream
+    //  server: accept HTTP/2 connection (by preface) besides HTTP/1.x, each stream as one HttpTrade
+    public static final Feature ENABLE_HTTP2 = new AbstractFeature0() {
+        @Override
+        public String toString() {
+            return "ENABLE_HTTP2";
+        }
+    };
+
+    //  HTTP/1.1 pipelining for client: at most depth requests sended without response on one channel
+    public static final class ENABLE_PIPELINING implements Feature {
+        public ENABLE_PIPELINING(final int depth) {
+            this._depth = depth;
+        }
+
+        public int depth() {
+            return this._depth;
+        }
+
+        @Override
+        public String toString() {
+            return "ENABLE_PIPELINING(" + this._depth + ")";
+        }
+
+        private final int _depth;
+    }
 }
@@ -0,0 +1,13 @@
+package org.jocean.http;
+
+import java.io.File;
+
+//  MessageBody backed by file: when send as outbound, HttpConnection write it as FileRegion (zero copy)
+//  for plaintext socket channel, or as ChunkedNioFile when SSL/compressor applied or channel not socket (eg: HTTP2 stream)
+public interface FileBody extends MessageBody {
+    public File file();
+
+    //  [position, position + count) of file as body
+    public long position();
+    public long count();
+}
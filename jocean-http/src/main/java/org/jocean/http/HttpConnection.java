@@ -1,5 +1,8 @@
 package org.jocean.http;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -12,7 +15,6 @@ import org.jocean.http.util.Nettys;
 import org.jocean.http.util.RxNettys;
 import org.jocean.idiom.COWCompositeSupport;
 import org.jocean.idiom.DisposableWrapper;
-import org.jocean.idiom.DisposableWrapperUtil;
 import org.jocean.idiom.ExceptionUtils;
 import org.jocean.idiom.InterfaceSelector;
 import org.jocean.idiom.Stepable;
@@ -22,17 +24,32 @@ import org.jocean.idiom.rx.Action1_N;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufHolder;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentEncoder;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import rx.Completable;
@@ -110,6 +127,23 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
 
     private volatile boolean _isFlushPerWrite = false;
 
+    private volatile int _maxWritesPerFlush = 0;
+
+    private volatile int _maxBytesPerFlush = 0;
+
+    //  below fields updated only in event loop, flush stats counted only when flush consolidation enabled
+    private int _unflushedWrites = 0;
+
+    private long _unflushedBytes = 0;
+
+    private boolean _flushScheduled = false;
+
+    private long _writeCount = 0;
+
+    private long _flushCount = 0;
+
+    private int _maxWritesInFlush = 0;
+
     private final TrafficCounter _traffic;
 
     protected final TerminateAwareSupport<T> _terminateAwareSupport;
@@ -189,6 +223,38 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
                 _isFlushPerWrite = isFlushPerWrite;
             }
 
+            @Override
+            public void setFlushConsolidation(final int maxWrites, final int maxBytes) {
+                _maxBytesPerFlush = maxBytes;
+                _maxWritesPerFlush = maxWrites;
+            }
+
+            @Override
+            public FlushStats flushStats() {
+                return new FlushStats() {
+                    @Override
+                    public long writeCount() {
+                        return _writeCount;
+                    }
+
+                    @Override
+                    public long flushCount() {
+                        return _flushCount;
+                    }
+
+                    @Override
+                    public int maxWritesPerFlush() {
+                        return _maxWritesInFlush;
+                    }
+
+                    @Override
+                    public String toString() {
+                        return new StringBuilder().append("FlushStats [writes=").append(writeCount())
+                                .append(", flushes=").append(flushCount())
+                                .append(", maxWritesPerFlush=").append(maxWritesPerFlush()).append("]").toString();
+                    }};
+            }
+
             @Override
             public void setWriteBufferWaterMark(final int low, final int high) {
                 _op.setWriteBufferWaterMark(HttpConnection.this, low, high);
@@ -308,8 +374,8 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
         final Subscriber<? super HttpSlice> subscriber = inboundSubscriberUpdater.get(this);
 
         if (null != subscriber && !subscriber.isUnsubscribed()) {
-            //  如 _inmsgsRef 已经被赋值有 List<?> 实例，则已经解码出有效 inmsg
-            if (null == this._inmsgsRef.get()) {
+            //  如 _sliceRef 已经被赋值有 InboundSlice 实例，则已经解码出有效 inmsg
+            if (null == this._sliceRef.get()) {
                 // TODO, check if inbound onCompleted
 
                 //  SSL enabled 连接:
@@ -328,31 +394,173 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
     }
 
     private HttpSlice currentSlice(final boolean needStep) {
-        final Subscription runOnce = needStep ? Subscriptions.create(new Action0() {
-            @Override
-            public void call() {
-                readMessage();
+        return this._sliceRef.getAndSet(null).ready(needStep);
+    }
+
+    //  slice of inbound msgs between two read, for aggregated or single-chunk message (the common case)
+    //  hold the only msg directly: no List, and element as scalar Observable
+    static final class InboundSlice implements HttpSlice {
+        InboundSlice(final HttpConnection<?> connection) {
+            this._connection = connection;
+        }
+
+        void add(final DisposableWrapper<HttpObject> dwh) {
+            if (null == this._1st) {
+                this._1st = dwh;
+            } else {
+                if (null == this._inmsgs) {
+                    this._inmsgs = new ArrayList<>(4);
+                    this._inmsgs.add(this._1st);
+                }
+                this._inmsgs.add(dwh);
             }
-        }) : Subscriptions.unsubscribed();
+        }
 
-        final List<DisposableWrapper<HttpObject>> inmsgs = this._inmsgsRef.getAndSet(null);
+        //  answered without subscribe element(), see HttpSliceUtil.lastOf
+        HttpObject last() {
+            return (null == this._inmsgs ? this._1st : this._inmsgs.get(this._inmsgs.size() - 1)).unwrap();
+        }
 
-        return new HttpSlice() {
-            @Override
-            public String toString() {
-                final int maxLen = 10;
-                return new StringBuilder().append("HttpSlice [step=")
-                        .append(runOnce.isUnsubscribed() ? "called" : "uncall").append(",element=")
-                        .append(inmsgs.subList(0, Math.min(inmsgs.size(), maxLen))).append("]").toString();
+        InboundSlice ready(final boolean needStep) {
+            this._stepped = needStep ? 0 : 1;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            final int maxLen = 10;
+            return new StringBuilder().append("HttpSlice [step=")
+                    .append(1 == this._stepped ? "called" : "uncall").append(",element=")
+                    .append(null == this._inmsgs ? "[" + this._1st + "]"
+                            : this._inmsgs.subList(0, Math.min(this._inmsgs.size(), maxLen)))
+                    .append("]").toString();
+        }
+
+        @Override
+        public void step() {
+            if (steppedUpdater.compareAndSet(this, 0, 1)) {
+                this._connection.readMessage();
             }
-            @Override
-            public void step() {
-                runOnce.unsubscribe();
+        }
+
+        @Override
+        public Observable<? extends DisposableWrapper<? extends HttpObject>> element() {
+            return null == this._inmsgs ? Observable.just(this._1st) : Observable.from(this._inmsgs);
+        }
+
+        private final HttpConnection<?> _connection;
+        private DisposableWrapper<HttpObject> _1st;
+        private List<DisposableWrapper<HttpObject>> _inmsgs;
+        private volatile int _stepped = 1;
+    }
+
+    private static final AtomicIntegerFieldUpdater<InboundSlice> steppedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(InboundSlice.class, "_stepped");
+
+    //  inbound msg not disposed yet, linked into connection's inmsg list,
+    //  so all of them can be released when connection terminated, without one terminate action per msg
+    private static final class Inmsg implements DisposableWrapper<HttpObject> {
+        Inmsg(final HttpConnection<?> connection, final HttpObject msg) {
+            this._connection = connection;
+            this._msg = msg;
+        }
+
+        @Override
+        public HttpObject unwrap() {
+            return this._msg;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return 1 == this._disposed;
+        }
+
+        @Override
+        public void dispose() {
+            if (disposedUpdater.compareAndSet(this, 0, 1)) {
+                this._connection.unlinkInmsg(this);
+                RxNettys.disposerOf().call(this._msg);
             }
-            @Override
-            public Observable<? extends DisposableWrapper<? extends HttpObject>> element() {
-                return Observable.from(inmsgs);
-            }};
+        }
+
+        @Override
+        public int hashCode() {
+            return this._msg.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            return obj instanceof DisposableWrapper && this._msg.equals(((DisposableWrapper<?>)obj).unwrap());
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder().append("DW[").append(this._msg).append("]").toString();
+        }
+
+        private final HttpConnection<?> _connection;
+        private final HttpObject _msg;
+        private volatile int _disposed = 0;
+
+        //  guarded by connection's _inmsgsLock
+        private Inmsg _prev;
+        private Inmsg _next;
+    }
+
+    private static final AtomicIntegerFieldUpdater<Inmsg> disposedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Inmsg.class, "_disposed");
+
+    private DisposableWrapper<HttpObject> wrapInmsg(final HttpObject msg) {
+        final Inmsg inmsg = new Inmsg(this, msg);
+        synchronized (this._inmsgsLock) {
+            if (!this._inmsgsTerminated) {
+                inmsg._next = this._inmsgsHead;
+                if (null != this._inmsgsHead) {
+                    this._inmsgsHead._prev = inmsg;
+                }
+                this._inmsgsHead = inmsg;
+                return inmsg;
+            }
+        }
+        // connection has terminated
+        inmsg.dispose();
+        return inmsg;
+    }
+
+    private void unlinkInmsg(final Inmsg inmsg) {
+        synchronized (this._inmsgsLock) {
+            if (this._inmsgsTerminated) {
+                //  list has been detached by disposeAllInmsgs
+                return;
+            }
+            if (null != inmsg._prev) {
+                inmsg._prev._next = inmsg._next;
+            } else if (this._inmsgsHead == inmsg) {
+                this._inmsgsHead = inmsg._next;
+            }
+            if (null != inmsg._next) {
+                inmsg._next._prev = inmsg._prev;
+            }
+            inmsg._prev = null;
+            inmsg._next = null;
+        }
+    }
+
+    private void disposeAllInmsgs() {
+        Inmsg inmsg;
+        synchronized (this._inmsgsLock) {
+            this._inmsgsTerminated = true;
+            inmsg = this._inmsgsHead;
+            this._inmsgsHead = null;
+        }
+        while (null != inmsg) {
+            final Inmsg next = inmsg._next;
+            inmsg.dispose();
+            inmsg = next;
+        }
     }
 
 //    @Override
@@ -442,7 +650,7 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
 
         onInboundMessage(inmsg);
 
-        newOrFetchInmsgs().add(DisposableWrapperUtil.disposeOn(this, RxNettys.wrap4release(inmsg)));
+        sliceUnderConstruction().add(wrapInmsg(inmsg));
 
         if (inmsg instanceof HttpResponse) {
             this._currentStatus = ((HttpResponse)inmsg).status().code();
@@ -479,18 +687,36 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
         }
     }
 
-    private List<DisposableWrapper<HttpObject>> newOrFetchInmsgs() {
-        final List<DisposableWrapper<HttpObject>> inmsgs = this._inmsgsRef.get();
-        if ( null != inmsgs) {
-            return inmsgs;
+    private InboundSlice sliceUnderConstruction() {
+        final InboundSlice slice = this._sliceRef.get();
+        if ( null != slice) {
+            return slice;
         } else {
-            this._inmsgsRef.set(new ArrayList<DisposableWrapper<HttpObject>>());
-            return this._inmsgsRef.get();
+            this._sliceRef.set(new InboundSlice(this));
+            return this._sliceRef.get();
         }
     }
 
     private Completable doFlush() {
-        return RxNettys.future2Completable(this._channel.writeAndFlush(Unpooled.EMPTY_BUFFER), false);
+        if (this._maxWritesPerFlush > 0 && this._channel.isWritable()) {
+            //  flush consolidation: pending writes will be flushed by writes/bytes limit or end of event loop task,
+            //  so step to next unit at once while channel still writable
+            return Completable.complete();
+        }
+        return RxNettys.future2Completable(flushOutbound(), false);
+    }
+
+    protected ChannelFuture flushOutbound() {
+        if (this._channel instanceof Http2StreamChannel) {
+            //  http2 stream only accept Http2StreamFrame, can't flush by EMPTY_BUFFER,
+            //  and writes before flush are passed to parent channel in order
+            this._channel.flush();
+            return this._channel.newSucceededFuture();
+        } else if (this._maxWritesPerFlush > 0) {
+            return writeCoalesced(Unpooled.EMPTY_BUFFER, true);
+        } else {
+            return this._channel.writeAndFlush(Unpooled.EMPTY_BUFFER);
+        }
     }
 
     private void doSendOutmsg(final Object outmsg) {
@@ -509,7 +735,7 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
             }};
         onOutmsgSending(outmsg);
         if (outmsg instanceof DoFlush) {
-            this._channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(whenComplete);
+            flushOutbound().addListener(whenComplete);
         } else {
             writeOutmsgToChannel(outmsg).addListener(whenComplete);
         }
@@ -520,9 +746,160 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
             outmsg = ((DisposableWrapper<?>)outmsg).unwrap();
         }
         beforeSendingOutbound(outmsg);
-        return this._isFlushPerWrite
-                ? this._channel.writeAndFlush(ReferenceCountUtil.retain(outmsg))
-                : this._channel.write(ReferenceCountUtil.retain(outmsg));
+        final Object tosend;
+        if (outmsg instanceof FileBody) {
+            try {
+                tosend = fileOutmsgOf((FileBody)outmsg);
+            } catch (final IOException e) {
+                return this._channel.newFailedFuture(e);
+            }
+        } else if (outmsg instanceof ByteBuf && this._channel instanceof Http2StreamChannel) {
+            //  http2 stream codec only accept HttpObject, so wrap raw (maybe gathered) body buf as HttpContent
+            tosend = new DefaultHttpContent(((ByteBuf)outmsg).retain());
+        } else {
+            tosend = ReferenceCountUtil.retain(outmsg);
+        }
+        if (this._isFlushPerWrite) {
+            return this._channel.writeAndFlush(tosend);
+        } else if (this._maxWritesPerFlush > 0) {
+            return writeCoalesced(tosend, false);
+        } else {
+            return this._channel.write(tosend);
+        }
+    }
+
+    private Object fileOutmsgOf(final FileBody body) throws IOException {
+        if (isZeroCopyAvailable()) {
+            return new DefaultFileRegion(body.file(), body.position(), body.count());
+        } else {
+            //  SSL, compressor or non-socket channel can't handle FileRegion,
+            //  so read file as HttpContent with channel's (pooled) allocator by ChunkedWriteHandler
+            if (!Nettys.isHandlerApplied(this._channel.pipeline(), HttpHandlers.CHUNKED_WRITER)) {
+                Nettys.applyToChannel(onTerminate(), this._channel, HttpHandlers.CHUNKED_WRITER);
+            }
+            return new HttpContentInput(new ChunkedNioFile(FileChannel.open(body.file().toPath(), StandardOpenOption.READ),
+                    body.position(), body.count(), _FILE_CHUNK_SIZE));
+        }
+    }
+
+    private boolean isZeroCopyAvailable() {
+        final ChannelPipeline pipeline = this._channel.pipeline();
+        return this._channel instanceof SocketChannel
+                && null == pipeline.get(SslHandler.class)
+                && null == pipeline.get(HttpContentEncoder.class);
+    }
+
+    private static final int _FILE_CHUNK_SIZE = 64 * 1024;
+
+    //  file chunks as HttpContent (NOT LastHttpContent) so pass through compressor,
+    //  LastHttpContent sended by outbound itself
+    private static final class HttpContentInput implements ChunkedInput<HttpContent> {
+        HttpContentInput(final ChunkedInput<ByteBuf> input) {
+            this._input = input;
+        }
+
+        @Override
+        public boolean isEndOfInput() throws Exception {
+            return this._input.isEndOfInput();
+        }
+
+        @Override
+        public void close() throws Exception {
+            this._input.close();
+        }
+
+        @Deprecated
+        @Override
+        public HttpContent readChunk(final ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public HttpContent readChunk(final ByteBufAllocator allocator) throws Exception {
+            final ByteBuf buf = this._input.readChunk(allocator);
+            return null != buf ? new DefaultHttpContent(buf) : null;
+        }
+
+        @Override
+        public long length() {
+            return this._input.length();
+        }
+
+        @Override
+        public long progress() {
+            return this._input.progress();
+        }
+
+        private final ChunkedInput<ByteBuf> _input;
+    }
+
+    private ChannelFuture writeCoalesced(final Object outmsg, final boolean flushNow) {
+        final ChannelPromise promise = this._channel.newPromise();
+        if (this._channel.eventLoop().inEventLoop()) {
+            doWriteCoalesced(outmsg, flushNow, promise);
+        } else {
+            this._channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    doWriteCoalesced(outmsg, flushNow, promise);
+                }});
+        }
+        return promise;
+    }
+
+    //  invoked in event loop
+    private void doWriteCoalesced(final Object outmsg, final boolean flushNow, final ChannelPromise promise) {
+        this._channel.write(outmsg, promise);
+        if (flushNow) {
+            flushCoalesced();
+            return;
+        }
+        this._writeCount++;
+        this._unflushedWrites++;
+        this._unflushedBytes += sizeOf(outmsg);
+        if (this._unflushedWrites >= this._maxWritesPerFlush
+            || (this._maxBytesPerFlush > 0 && this._unflushedBytes >= this._maxBytesPerFlush)) {
+            flushCoalesced();
+        } else if (!this._flushScheduled) {
+            //  flush at the end of current event loop task
+            this._flushScheduled = true;
+            this._channel.eventLoop().execute(this._scheduledFlush);
+        }
+    }
+
+    //  invoked in event loop
+    private void flushCoalesced() {
+        final int writes = this._unflushedWrites;
+        this._unflushedWrites = 0;
+        this._unflushedBytes = 0;
+        this._flushCount++;
+        if (writes > this._maxWritesInFlush) {
+            this._maxWritesInFlush = writes;
+        }
+        this._channel.flush();
+    }
+
+    private final Runnable _scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            _flushScheduled = false;
+            if (_unflushedWrites > 0) {
+                flushCoalesced();
+            }
+        }};
+
+    private static long sizeOf(final Object outmsg) {
+        if (outmsg instanceof ByteBuf) {
+            return ((ByteBuf)outmsg).readableBytes();
+        } else if (outmsg instanceof ByteBufHolder) {
+            return ((ByteBufHolder)outmsg).content().readableBytes();
+        } else if (outmsg instanceof FileRegion) {
+            return ((FileRegion)outmsg).count();
+        } else if (outmsg instanceof ChunkedInput) {
+            return Math.max(((ChunkedInput<?>)outmsg).length(), 0);
+        } else {
+            return 0;
+        }
     }
 
     private void onOutmsgSending(final Object outmsg) {
@@ -546,7 +923,9 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
 
     @SuppressWarnings("unchecked")
     private void doClosed(final Throwable e) {
-        LOG.debug("closing {}, cause by {}", toString(), errorAsString(e));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("closing {}, cause by {}", toString(), errorAsString(e));
+        }
 
         removeInboundHandler();
 
@@ -555,11 +934,9 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
 
         unsubscribeOutbound();
 
-        // clear cached inbound part
-        final List<DisposableWrapper<HttpObject>> inmsgs = this._inmsgsRef.getAndSet(null);
-        if (null != inmsgs) {
-            inmsgs.clear();
-        }
+        // clear cached inbound part, and release all undisposed inmsg
+        this._sliceRef.set(null);
+        disposeAllInmsgs();
 
         //  fire all pending subscribers onError with unactived exception
         this._terminateAwareSupport.fireAllTerminates((T) this);
@@ -726,7 +1103,11 @@ public abstract class HttpConnection<T> implements Inbound, Outbound, AutoClosea
     @SuppressWarnings("unused")
     private volatile long _readBegin = 0;
 
-    private final AtomicReference<List<DisposableWrapper<HttpObject>>> _inmsgsRef = new AtomicReference<>();
+    private final AtomicReference<InboundSlice> _sliceRef = new AtomicReference<>();
+
+    private final Object _inmsgsLock = new Object();
+    private Inmsg _inmsgsHead = null;
+    private boolean _inmsgsTerminated = false;
 
     @SuppressWarnings("rawtypes")
     private static final AtomicReferenceFieldUpdater<HttpConnection, Subscriber> inboundSubscriberUpdater =
@@ -7,6 +7,7 @@ import org.jocean.idiom.DisposableWrapperUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.LastHttpContent;
 import rx.Observable;
 import rx.Observable.Transformer;
 import rx.functions.Func1;
@@ -36,6 +37,19 @@ public class HttpSliceUtil {
         };
     }
 
+    //  last HttpObject of slice, slice from HttpConnection answer it without subscribe element()
+    public static HttpObject lastOf(final HttpSlice slice) {
+        if (slice instanceof HttpConnection.InboundSlice) {
+            return ((HttpConnection.InboundSlice)slice).last();
+        }
+        return slice.element().last().toBlocking().single().unwrap();
+    }
+
+    //  slice end with LastHttpContent (eg: FullHttpRequest/FullHttpResponse), no more slice follow
+    public static boolean isLastSlice(final HttpSlice slice) {
+        return lastOf(slice) instanceof LastHttpContent;
+    }
+
     public static Observable<HttpSlice> single(final Observable<? extends DisposableWrapper<? extends HttpObject>> element) {
         return Observable.<HttpSlice>just(new HttpSlice() {
             @Override
@@ -0,0 +1,164 @@
+package org.jocean.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jocean.idiom.DisposableWrapper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+//  feed ByteBufSlice(s) into jackson's non-blocking parser, emit each element of top-level json array
+//  as soon as it's complete, then step() slice to pull more data.
+//  if top-level json value is not array, emit the whole value as one element.
+class JsonElementsDecoder<T> {
+
+    private static final ObjectMapper _MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final int _FEED_SIZE = 8 * 1024;
+
+    static <T> Observable<T> decode(final Observable<? extends ByteBufSlice> content, final Class<T> type) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final JsonElementsDecoder<T> decoder;
+                try {
+                    decoder = new JsonElementsDecoder<>(type);
+                } catch (final IOException e) {
+                    return Observable.error(e);
+                }
+                return content.concatMap(new Func1<ByteBufSlice, Observable<T>>() {
+                    @Override
+                    public Observable<T> call(final ByteBufSlice slice) {
+                        return decoder.onSlice(slice);
+                    }})
+                    .concatWith(Observable.defer(new Func0<Observable<T>>() {
+                        @Override
+                        public Observable<T> call() {
+                            return decoder.onEnd();
+                        }}));
+            }});
+    }
+
+    private JsonElementsDecoder(final Class<T> type) throws IOException {
+        this._type = type;
+        this._parser = _MAPPER.getFactory().createNonBlockingByteArrayParser();
+        this._feeder = (ByteArrayFeeder)this._parser.getNonBlockingInputFeeder();
+    }
+
+    private Observable<T> onSlice(final ByteBufSlice slice) {
+        return slice.element().concatMap(new Func1<DisposableWrapper<? extends ByteBuf>, Observable<T>>() {
+            @Override
+            public Observable<T> call(final DisposableWrapper<? extends ByteBuf> dwb) {
+                final List<T> elements = new ArrayList<>();
+                try {
+                    feed(dwb.unwrap(), elements);
+                } catch (final Exception e) {
+                    return Observable.error(e);
+                } finally {
+                    //  bytes has been copied into parser
+                    dwb.dispose();
+                }
+                return Observable.from(elements);
+            }})
+            //  step after all elements of current slice emitted
+            .doOnCompleted(new Action0() {
+                @Override
+                public void call() {
+                    slice.step();
+                }});
+    }
+
+    private Observable<T> onEnd() {
+        final List<T> elements = new ArrayList<>();
+        try {
+            this._feeder.endOfInput();
+            drain(elements);
+            if (!this._done && null != this._isArray) {
+                return Observable.error(new IOException("incomplete json content"));
+            }
+        } catch (final Exception e) {
+            return Observable.error(e);
+        } finally {
+            try {
+                this._parser.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+        return Observable.from(elements);
+    }
+
+    private void feed(final ByteBuf buf, final List<T> elements) throws IOException {
+        int idx = buf.readerIndex();
+        final int end = buf.writerIndex();
+        //  trailing bytes after top-level value are ignored
+        while (!this._done && idx < end) {
+            final int len = Math.min(end - idx, this._bytes.length);
+            buf.getBytes(idx, this._bytes, 0, len);
+            idx += len;
+            this._feeder.feedInput(this._bytes, 0, len);
+            //  consume all fed bytes before reuse _bytes
+            drain(elements);
+        }
+    }
+
+    private void drain(final List<T> elements) throws IOException {
+        JsonToken token;
+        while (!this._done && null != (token = this._parser.nextToken()) && JsonToken.NOT_AVAILABLE != token) {
+            if (null == this._isArray) {
+                this._isArray = JsonToken.START_ARRAY == token;
+                if (this._isArray) {
+                    this._depth = 1;
+                    continue;
+                }
+            }
+            if (this._isArray && 1 == this._depth && JsonToken.END_ARRAY == token) {
+                this._done = true;
+                break;
+            }
+            if (null == this._tokens) {
+                this._tokens = new TokenBuffer(this._parser);
+            }
+            this._tokens.copyCurrentEvent(this._parser);
+            if (token.isStructStart()) {
+                this._depth++;
+            } else if (token.isStructEnd()) {
+                this._depth--;
+            }
+            if (this._depth == (this._isArray ? 1 : 0)) {
+                final JsonParser elementParser = this._tokens.asParser(_MAPPER);
+                this._tokens = null;
+                try {
+                    elements.add(_MAPPER.readValue(elementParser, this._type));
+                } finally {
+                    elementParser.close();
+                }
+                if (!this._isArray) {
+                    this._done = true;
+                }
+            }
+        }
+    }
+
+    private final Class<T> _type;
+    private final JsonParser _parser;
+    private final ByteArrayFeeder _feeder;
+    private final byte[] _bytes = new byte[_FEED_SIZE];
+    private Boolean _isArray = null;
+    private int _depth = 0;
+    private TokenBuffer _tokens = null;
+    private boolean _done = false;
+}
@@ -3,7 +3,6 @@ package org.jocean.http;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URI;
@@ -13,9 +12,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
-import javax.ws.rs.QueryParam;
 
 import org.jocean.http.client.HttpClient;
 import org.jocean.http.client.HttpClient.HttpInitiator;
@@ -105,19 +102,19 @@ public class MessageUtil {
     }
 
     public static void request2QueryParams(final HttpRequest request, final Object bean) {
-        final Field[] fields = ReflectUtils.getAnnotationFieldsOf(bean.getClass(), QueryParam.class);
-        if (null != fields) {
+        final BeanPlan.Param[] params = BeanPlan.of(bean.getClass()).queryParams();
+        if (params.length > 0) {
             final QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
 
-            for (final Field field : fields) {
-                final String key = field.getAnnotation(QueryParam.class).value();
+            for (final BeanPlan.Param param : params) {
+                final String key = param.name();
                 if (!"".equals(key) && null != decoder.parameters()) {
                     // for case: QueryParam("demo")
-                    injectParamValue(decoder.parameters().get(key), bean, field);
+                    injectParamValue(decoder.parameters().get(key), bean, param);
                 }
                 if ("".equals(key)) {
                     // for case: QueryParam(""), means fill with entire query string
-                    injectValueToField(rawQuery(request.uri()), bean, field);
+                    injectValueToField(rawQuery(request.uri()), bean, param);
                 }
             }
         }
@@ -141,23 +138,20 @@ public class MessageUtil {
     }
 
     public static void request2HeaderParams(final HttpRequest request, final Object bean) {
-        final Field[] fields = ReflectUtils.getAnnotationFieldsOf(bean.getClass(), HeaderParam.class);
-        if (null != fields) {
-            for (final Field field : fields) {
-                injectParamValue(request.headers().getAll(field.getAnnotation(HeaderParam.class).value()),
-                    bean,
-                    field
-                );
-            }
+        for (final BeanPlan.Param param : BeanPlan.of(bean.getClass()).headerParams()) {
+            injectParamValue(request.headers().getAll(param.name()),
+                bean,
+                param
+            );
         }
     }
 
     private static void injectParamValue(
             final List<String> values,
             final Object obj,
-            final Field field) {
+            final BeanPlan.Param param) {
         if (null != values && values.size() > 0) {
-            injectValueToField(values.get(0), obj, field);
+            injectValueToField(values.get(0), obj, param);
         }
     }
 
@@ -172,23 +166,23 @@ public class MessageUtil {
     /**
      * @param value
      * @param obj
-     * @param field
+     * @param param
      */
     private static void injectValueToField(
             final String value,
             final Object obj,
-            final Field field) {
+            final BeanPlan.Param param) {
         if (null != value) {
             try {
-                field.set(obj, Beans.fromString(value, field.getType()));
+                param.set(obj, Beans.fromString(value, param.type()));
             } catch (final Exception e) {
                 LOG.warn("exception when set obj({}).{} with value({}), detail:{} ",
-                        obj, field.getName(), value, ExceptionUtils.exception2detail(e));
+                        obj, param.field().getName(), value, ExceptionUtils.exception2detail(e));
             }
         }
     }
 
-    public static <T> T unserializeAsXml(final InputStream is, final Class<T> type) {
+    static XmlMapper xmlMapper() {
         final XmlMapper mapper = new XmlMapper();
         mapper.addHandler(new DeserializationProblemHandler() {
             @Override
@@ -199,8 +193,15 @@ public class MessageUtil {
                 p.skipChildren();
                 return true;
             }});
+        return mapper;
+    }
+
+    //  XmlMapper is thread-safe once configured, and costly to create for each serialize/unserialize
+    private static final XmlMapper _XML_MAPPER = xmlMapper();
+
+    public static <T> T unserializeAsXml(final InputStream is, final Class<T> type) {
         try {
-            return mapper.readValue(is, type);
+            return _XML_MAPPER.readValue(is, type);
         } catch (final Exception e) {
             LOG.warn("exception when parse as xml, detail: {}", ExceptionUtils.exception2detail(e));
             return null;
@@ -239,12 +240,8 @@ public class MessageUtil {
             if (null != bean) {
                 final QueryStringDecoder decoder = new QueryStringDecoder(kvs, CharsetUtil.UTF_8, false);
 
-                final Field[] fields = ReflectUtils.getAnnotationFieldsOf(type, QueryParam.class);
-                if (null != fields) {
-                    for (final Field field : fields) {
-                        final String key = field.getAnnotation(QueryParam.class).value();
-                        injectParamValue(decoder.parameters().get(key), bean, field);
-                    }
+                for (final BeanPlan.Param param : BeanPlan.of(type).queryParams()) {
+                    injectParamValue(decoder.parameters().get(param.name()), bean, param);
                 }
 
                 return bean;
@@ -270,10 +267,8 @@ public class MessageUtil {
     }
 
     public static void serializeToXml(final Object bean, final OutputStream out) {
-        final XmlMapper mapper = new XmlMapper();
-//        mapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
         try {
-            mapper.writeValue(out, bean);
+            _XML_MAPPER.writeValue(out, bean);
         } catch (final Exception e) {
             LOG.warn("exception when serialize {} to xml, detail: {}",
                     bean, ExceptionUtils.exception2detail(e));
@@ -417,13 +412,10 @@ public class MessageUtil {
                 if (null == _uriRef.get()) {
                     for (final Object bean : reqbeans) {
                         try {
-                            final Path path = bean.getClass().getAnnotation(Path.class);
-                            if (null != path) {
-                                final URI uri = new URI(path.value());
-                                if (null != uri.getHost()) {
-                                    uri(path.value());
-                                    return;
-                                }
+                            final BeanPlan plan = BeanPlan.of(bean.getClass());
+                            if (null != plan.path() && null != plan.pathHost()) {
+                                uri(plan.path());
+                                return;
                             }
                         } catch (final Exception e) {
                             LOG.warn("exception when extract uri from bean {}, detail: {}",
@@ -502,7 +494,7 @@ public class MessageUtil {
             @Override
             public Interact body(final Object bean, final ContentEncoder contentEncoder) {
                 _obsreqRef.set(_obsreqRef.get().compose(
-                        addBodyWithContentLength(toBody(bean, contentEncoder.contentType(), contentEncoder.encoder()))));
+                        addBodyWithContentLength(toBody(bean, contentEncoder))));
                 return this;
             }
 
@@ -688,56 +680,46 @@ public class MessageUtil {
     }
 
     static void setUriToRequest(final HttpRequest request, final Object bean) {
-        final Path apath = bean.getClass().getAnnotation(Path.class);
-        if (null!=apath) {
-            try {
-                final URI uri = new URI(apath.value());
-                if (null != uri.getHost() && null == request.headers().get(HttpHeaderNames.HOST)) {
-                    request.headers().set(HttpHeaderNames.HOST, uri.getHost());
-                }
+        final BeanPlan plan = BeanPlan.of(bean.getClass());
+        if (null != plan.path()) {
+            if (null != plan.pathHost() && null == request.headers().get(HttpHeaderNames.HOST)) {
+                request.headers().set(HttpHeaderNames.HOST, plan.pathHost());
+            }
 
-                if (null != uri.getRawPath() && request.uri().isEmpty()) {
-                    request.setUri(uri.getRawPath());
-                }
-            } catch (final Exception e) {
-                throw new RuntimeException(e);
+            if (null != plan.pathRawPath() && request.uri().isEmpty()) {
+                request.setUri(plan.pathRawPath());
             }
         }
     }
 
     private static void addHeaderParams(final HttpRequest request, final Object bean) {
-        final Field[] headerFields = ReflectUtils.getAnnotationFieldsOf(bean.getClass(), HeaderParam.class);
-        if ( headerFields.length > 0 ) {
-            for ( final Field field : headerFields ) {
-                try {
-                    final Object value = field.get(bean);
-                    if ( null != value ) {
-                        final String headername = field.getAnnotation(HeaderParam.class).value();
-                        request.headers().set(headername, value);
-                    }
-                } catch (final Exception e) {
-                    LOG.warn("exception when get value from field:[{}], detail:{}",
-                            field, ExceptionUtils.exception2detail(e));
+        for (final BeanPlan.Param param : BeanPlan.of(bean.getClass()).headerParams()) {
+            try {
+                final Object value = param.get(bean);
+                if ( null != value ) {
+                    request.headers().set(param.name(), value);
                 }
+            } catch (final Exception e) {
+                LOG.warn("exception when get value from field:[{}], detail:{}",
+                        param, ExceptionUtils.exception2detail(e));
             }
         }
     }
 
     private static void addQueryParams(final HttpRequest request, final Object bean) {
-        final Field[] queryFields = ReflectUtils.getAnnotationFieldsOf(bean.getClass(), QueryParam.class);
-        if ( queryFields.length > 0 ) {
+        final BeanPlan.Param[] params = BeanPlan.of(bean.getClass()).queryParams();
+        if ( params.length > 0 ) {
             final QueryStringEncoder encoder = new QueryStringEncoder(request.uri());
-            for (final Field field : queryFields) {
+            for (final BeanPlan.Param param : params) {
                 try {
-                    final Object value = field.get(bean);
+                    final Object value = param.get(bean);
                     if ( null != value ) {
-                        final String paramkey = field.getAnnotation(QueryParam.class).value();
-                        encoder.addParam(paramkey, String.valueOf(value));
+                        encoder.addParam(param.name(), String.valueOf(value));
                     }
                 }
                 catch (final Exception e) {
                     LOG.warn("exception when get field({})'s value, detail:{}",
-                            field, ExceptionUtils.exception2detail(e));
+                            param, ExceptionUtils.exception2detail(e));
                 }
             }
 
@@ -765,7 +747,9 @@ public class MessageUtil {
                                     } else {
                                         HttpUtil.setTransferEncodingChunked(httpmsg, true);
                                     }
-                                    return Observable.concat(Observable.just(httpmsg), body.content());
+                                    //  FileBody send as whole by HttpConnection (FileRegion or chunked file)
+                                    return Observable.concat(Observable.just(httpmsg),
+                                            body instanceof FileBody ? Observable.just(body) : body.content());
                                 }});
                         } else {
                             return Observable.just(obj);
@@ -787,6 +771,13 @@ public class MessageUtil {
                             return obsbody.flatMap(new Func1<MessageBody, Observable<Object>>() {
                                 @Override
                                 public Observable<Object> call(final MessageBody body) {
+                                    if (body.contentLength() > 0) {
+                                        //  length known, send bufs as they come without collect all
+                                        httpmsg.headers().set(HttpHeaderNames.CONTENT_TYPE, body.contentType());
+                                        httpmsg.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.contentLength());
+                                        return Observable.concat(Observable.just(httpmsg),
+                                                body.content().compose(AUTOSTEP2DWB));
+                                    }
                                     return body.content().compose(AUTOSTEP2DWB).toList().flatMap(new Func1<List<DisposableWrapper<? extends ByteBuf>>, Observable<Object>>() {
                                         @Override
                                         public Observable<Object> call(final List<DisposableWrapper<? extends ByteBuf>> dwbs) {
@@ -808,6 +799,39 @@ public class MessageUtil {
         };
     }
 
+    public static Observable<? extends MessageBody> toBody(final Object bean, final ContentEncoder contentEncoder) {
+        if (contentEncoder instanceof ContentEncoder.ToByteBuf) {
+            final ContentEncoder.ToByteBuf tobuf = (ContentEncoder.ToByteBuf)contentEncoder;
+            //  encode once when body subscribed, so content length is known before send
+            return tobuf.encodeAsByteBuf(bean).map(new Func1<DisposableWrapper<ByteBuf>, MessageBody>() {
+                @Override
+                public MessageBody call(final DisposableWrapper<ByteBuf> dwb) {
+                    return new MessageBody() {
+                        @Override
+                        public String contentType() {
+                            return tobuf.contentType();
+                        }
+                        @Override
+                        public int contentLength() {
+                            return dwb.unwrap().readableBytes();
+                        }
+                        @Override
+                        public Observable<? extends ByteBufSlice> content() {
+                            return Observable.<ByteBufSlice>just(new ByteBufSlice() {
+                                @Override
+                                public void step() {}
+
+                                @Override
+                                public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
+                                    return Observable.just(dwb);
+                                }});
+                        }};
+                }});
+        } else {
+            return toBody(bean, contentEncoder.contentType(), contentEncoder.encoder());
+        }
+    }
+
     public static Observable<? extends MessageBody> toBody(
             final Object bean,
             final String contentType,
@@ -834,6 +858,9 @@ public class MessageUtil {
             return dwb.unwrap();
         }};
 
+    //  8 pages of bufout, sent as one write
+    private static final int _MAX_GATHER_BYTES = 64 * 1024;
+
     private static Observable<ByteBufSlice> bean2bbs(final Object bean, final Action2<Object, OutputStream> encoder) {
         final BufsOutputStream<DisposableWrapper<ByteBuf>> bufout =
                 new BufsOutputStream<>(pooledAllocator(null, 8192), _UNWRAP_DWB);
@@ -849,7 +876,7 @@ public class MessageUtil {
                     public void call() {
                         encoder.call(bean, bufout);
                     }});
-            }});
+            }}).map(ByteBufSliceUtil.gather(_MAX_GATHER_BYTES));
     }
 
     public static Observable<Object> fullRequestWithoutBody(final HttpVersion version, final HttpMethod method) {
@@ -966,6 +993,18 @@ public class MessageUtil {
         }, type);
     }
 
+    //  decode json content incrementally without aggregating whole body:
+    //  emit each element of top-level json array (or the top-level value itself if it's not array)
+    //  as soon as it's parsed, and step each ByteBufSlice only after its bytes consumed
+    public static <T> Observable<? extends T> decodeJsonArrayAs(final MessageBody body, final Class<T> type) {
+        return decodeJsonArrayAs(body.content(), type);
+    }
+
+    public static <T> Observable<? extends T> decodeJsonArrayAs(final Observable<? extends ByteBufSlice> content,
+            final Class<T> type) {
+        return JsonElementsDecoder.decode(content, type);
+    }
+
     public static <T> Observable<? extends T> decodeXmlAs(final MessageBody body, final Class<T> type) {
         return decodeContentAs(body.content(), new Func2<InputStream, Class<T>, T>() {
             @Override
@@ -975,6 +1014,19 @@ public class MessageUtil {
         }, type);
     }
 
+    //  decode xml content incrementally without aggregating whole body:
+    //  emit each element named localName (eg: repeated item of list response) as soon as it closed,
+    //  and step each ByteBufSlice only after its bytes consumed
+    public static <T> Observable<? extends T> decodeXmlElementsAs(final MessageBody body, final String localName,
+            final Class<T> type) {
+        return decodeXmlElementsAs(body.content(), localName, type);
+    }
+
+    public static <T> Observable<? extends T> decodeXmlElementsAs(final Observable<? extends ByteBufSlice> content,
+            final String localName, final Class<T> type) {
+        return XmlElementDecoder.decode(content, localName, type);
+    }
+
     public static <T> Observable<? extends T> decodeContentAs(
             final Observable<? extends ByteBufSlice> content, final Func2<InputStream, Class<T>, T> func,
             final Class<T> type) {
@@ -3,7 +3,21 @@ package org.jocean.http;
 import rx.Observable;
 
 public interface WriteCtrl {
+    public interface FlushStats {
+        public long writeCount();
+        public long flushCount();
+        public int maxWritesPerFlush();
+    }
+
     public void setFlushPerWrite(final boolean isFlushPerWrite);
+
+    //  flush after maxWrites writes or maxBytes pending bytes, or at the end of current event loop task,
+    //  whichever comes first; maxWrites <= 0 to disable (default)
+    public void setFlushConsolidation(final int maxWrites, final int maxBytes);
+
+    //  counted only when flush consolidation enabled, so default write path pays nothing for it
+    public FlushStats flushStats();
+
     public void setWriteBufferWaterMark(final int low, final int high);
     public Observable<Boolean> writability();
     public Observable<Object> sending();
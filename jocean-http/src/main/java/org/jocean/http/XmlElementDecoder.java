@@ -0,0 +1,321 @@
+package org.jocean.http;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.jocean.idiom.DisposableWrapper;
+
+import com.fasterxml.aalto.AsyncByteArrayFeeder;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+//  feed ByteBufSlice(s) into aalto's async StAX parser, locate bytes of each element named localName in input,
+//  bind these bytes by XmlMapper and emit it as soon as the element closed, then drop the bytes,
+//  and step() each slice after its elements emitted: only one element's bytes kept in memory.
+class XmlElementDecoder<T> {
+
+    private static final InputFactoryImpl _FACTORY = new InputFactoryImpl();
+
+    private static final XmlMapper _MAPPER = MessageUtil.xmlMapper();
+
+    private static final int _FEED_SIZE = 8 * 1024;
+
+    static <T> Observable<T> decode(final Observable<? extends ByteBufSlice> content, final String localName,
+            final Class<T> type) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final XmlElementDecoder<T> decoder = new XmlElementDecoder<>(localName, type);
+                return content.concatMap(new Func1<ByteBufSlice, Observable<T>>() {
+                    @Override
+                    public Observable<T> call(final ByteBufSlice slice) {
+                        return decoder.onSlice(slice);
+                    }})
+                    .concatWith(Observable.defer(new Func0<Observable<T>>() {
+                        @Override
+                        public Observable<T> call() {
+                            return decoder.onEnd();
+                        }}));
+            }});
+    }
+
+    private XmlElementDecoder(final String localName, final Class<T> type) {
+        this._localName = localName;
+        this._type = type;
+        this._reader = _FACTORY.createAsyncForByteArray();
+        this._feeder = this._reader.getInputFeeder();
+    }
+
+    private Observable<T> onSlice(final ByteBufSlice slice) {
+        return slice.element().concatMap(new Func1<DisposableWrapper<? extends ByteBuf>, Observable<T>>() {
+            @Override
+            public Observable<T> call(final DisposableWrapper<? extends ByteBuf> dwb) {
+                final List<T> elements = new ArrayList<>();
+                try {
+                    feed(dwb.unwrap(), elements);
+                } catch (final Exception e) {
+                    return Observable.error(e);
+                } finally {
+                    //  bytes has been copied into _input
+                    dwb.dispose();
+                }
+                return Observable.from(elements);
+            }})
+            //  step after all elements of current slice emitted
+            .doOnCompleted(new Action0() {
+                @Override
+                public void call() {
+                    slice.step();
+                }});
+    }
+
+    private Observable<T> onEnd() {
+        final List<T> elements = new ArrayList<>();
+        try {
+            this._feeder.endOfInput();
+            parse(elements);
+            if (!this._done && this._depth > 0) {
+                return Observable.error(new XMLStreamException("incomplete xml content"));
+            }
+        } catch (final Exception e) {
+            return Observable.error(e);
+        } finally {
+            try {
+                this._reader.close();
+            } catch (final XMLStreamException e) {
+                // ignore
+            }
+        }
+        return Observable.from(elements);
+    }
+
+    private void feed(final ByteBuf buf, final List<T> elements) throws IOException, XMLStreamException {
+        int idx = buf.readerIndex();
+        final int end = buf.writerIndex();
+        //  trailing bytes after root element are ignored
+        while (!this._done && idx < end) {
+            final int len = Math.min(end - idx, this._bytes.length);
+            buf.getBytes(idx, this._bytes, 0, len);
+            idx += len;
+            //  keep fed bytes for element binding
+            ensureWritable(len);
+            System.arraycopy(this._bytes, 0, this._input, this._inputLength, len);
+            this._inputLength += len;
+            //  aalto's byte offset is wrong when feed from non-zero start, so always feed from 0
+            this._feeder.feedInput(this._bytes, 0, len);
+            //  consume all fed bytes before reuse _bytes
+            parse(elements);
+        }
+    }
+
+    //  drop bytes not needed any more: before current element, or before end of last event
+    private void ensureWritable(final int len) {
+        final int drop = (int)((0 != this._elementDepth ? this._elementStart : this._keepFrom) - this._inputOffset);
+        if (drop > 0) {
+            System.arraycopy(this._input, drop, this._input, 0, this._inputLength - drop);
+            this._inputLength -= drop;
+            this._inputOffset += drop;
+        }
+        if (this._input.length - this._inputLength < len) {
+            this._input = Arrays.copyOf(this._input, Math.max(this._input.length * 2, this._inputLength + len));
+        }
+    }
+
+    private void parse(final List<T> elements) throws IOException, XMLStreamException {
+        while (!this._done && this._reader.hasNext()) {
+            final int event = this._reader.next();
+            if (AsyncXMLStreamReader.EVENT_INCOMPLETE == event) {
+                return;
+            }
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                this._depth++;
+                if (0 != this._elementDepth) {
+                    break;
+                }
+                if (this._localName.equals(this._reader.getLocalName())) {
+                    this._elementDepth = this._depth;
+                    startElement();
+                } else {
+                    pushNamespaces();
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (this._elementDepth == this._depth) {
+                    elements.add(bindElement(this._reader.getLocationInfo().getEndingByteOffset()));
+                    this._elementDepth = 0;
+                } else if (0 == this._elementDepth) {
+                    popNamespaces();
+                }
+                this._depth--;
+                if (0 == this._depth) {
+                    this._done = true;
+                }
+                break;
+            default:
+                // text, comment, processing instruction, dtd etc are kept as bytes of element or skipped
+            }
+            //  aalto's starting offset of event is not reliable (eg: root element after prolog),
+            //  but ending offset is, and START_DOCUMENT may end after the root's '<'
+            if (0 == this._elementDepth && XMLStreamConstants.START_DOCUMENT != event) {
+                this._keepFrom = this._reader.getLocationInfo().getEndingByteOffset();
+            }
+        }
+    }
+
+    //  locate '<' of current start tag: first '<qname' after end of previous event
+    private void startElement() throws XMLStreamException {
+        if (null == this._charset) {
+            final String encoding = this._reader.getEncoding();
+            this._charset = null != encoding ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        }
+        final String prefix = this._reader.getPrefix();
+        final byte[] tag = ("<" + (null != prefix && !prefix.isEmpty() ? prefix + ":" : "")
+                + this._reader.getLocalName()).getBytes(this._charset);
+        final int limit = this._inputLength - tag.length;
+        for (int idx = (int)(this._keepFrom - this._inputOffset); idx < limit; idx++) {
+            if (startsWith(idx, tag) && isTagNameEnd(this._input[idx + tag.length])) {
+                this._elementStart = this._inputOffset + idx;
+                this._elementNameEnd = this._elementStart + tag.length;
+                this._inheritedNamespaces = inheritedNamespaces();
+                return;
+            }
+        }
+        throw new XMLStreamException("can't locate start of element " + this._reader.getName());
+    }
+
+    private boolean startsWith(final int idx, final byte[] tag) {
+        for (int pos = 0; pos < tag.length; pos++) {
+            if (this._input[idx + pos] != tag[pos]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTagNameEnd(final byte b) {
+        return '>' == b || '/' == b || ' ' == b || '\t' == b || '\r' == b || '\n' == b;
+    }
+
+    private T bindElement(final long end) throws IOException {
+        final int start = (int)(this._elementStart - this._inputOffset);
+        final int length = (int)(end - this._elementStart);
+        if (null == this._inheritedNamespaces) {
+            return bind(this._input, start, length);
+        }
+        //  declare namespaces inherited from ancestors in element's start tag, after its name
+        final int nameEnd = (int)(this._elementNameEnd - this._inputOffset);
+        final byte[] declarations = this._inheritedNamespaces.getBytes(this._charset);
+        final byte[] bytes = new byte[length + declarations.length];
+        System.arraycopy(this._input, start, bytes, 0, nameEnd - start);
+        System.arraycopy(declarations, 0, bytes, nameEnd - start, declarations.length);
+        System.arraycopy(this._input, nameEnd, bytes, nameEnd - start + declarations.length, start + length - nameEnd);
+        return bind(bytes, 0, bytes.length);
+    }
+
+    private T bind(final byte[] bytes, final int offset, final int length) throws IOException {
+        //  element's bytes without xml declaration, so decode by document's encoding if not UTF-8
+        return StandardCharsets.UTF_8.equals(this._charset)
+                ? _MAPPER.readValue(bytes, offset, length, this._type)
+                : _MAPPER.readValue(new String(bytes, offset, length, this._charset), this._type);
+    }
+
+    private void pushNamespaces() {
+        final int count = this._reader.getNamespaceCount();
+        for (int idx = 0; idx < count; idx++) {
+            final String prefix = this._reader.getNamespacePrefix(idx);
+            final String uri = this._reader.getNamespaceURI(idx);
+            this._namespaces.add(null != prefix ? prefix : "");
+            this._namespaces.add(null != uri ? uri : "");
+        }
+        this._namespaceCounts.push(count);
+    }
+
+    private void popNamespaces() {
+        final int size = this._namespaces.size() - this._namespaceCounts.pop() * 2;
+        while (this._namespaces.size() > size) {
+            this._namespaces.remove(this._namespaces.size() - 1);
+        }
+    }
+
+    //  ancestors' namespace declarations not overridden by current element, as attributes, or null if none
+    private String inheritedNamespaces() {
+        if (this._namespaces.isEmpty()) {
+            return null;
+        }
+        final Set<String> declared = new HashSet<>();
+        for (int idx = 0; idx < this._reader.getNamespaceCount(); idx++) {
+            final String prefix = this._reader.getNamespacePrefix(idx);
+            declared.add(null != prefix ? prefix : "");
+        }
+        final StringBuilder sb = new StringBuilder();
+        //  inner declaration first
+        for (int idx = this._namespaces.size() - 2; idx >= 0; idx -= 2) {
+            final String prefix = this._namespaces.get(idx);
+            if (declared.add(prefix)) {
+                sb.append(prefix.isEmpty() ? " xmlns" : " xmlns:" + prefix).append("=\"");
+                appendEscaped(sb, this._namespaces.get(idx + 1));
+                sb.append('"');
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private static void appendEscaped(final StringBuilder sb, final String value) {
+        for (int idx = 0; idx < value.length(); idx++) {
+            final char c = value.charAt(idx);
+            switch (c) {
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    private final String _localName;
+    private final Class<T> _type;
+    private final AsyncXMLStreamReader<AsyncByteArrayFeeder> _reader;
+    private final AsyncByteArrayFeeder _feeder;
+    private final byte[] _bytes = new byte[_FEED_SIZE];
+    //  fed bytes from _inputOffset (offset in whole input), kept until element closed
+    private byte[] _input = new byte[_FEED_SIZE];
+    private int _inputLength = 0;
+    private long _inputOffset = 0;
+    private long _keepFrom = 0;
+    private long _elementStart = 0;
+    private long _elementNameEnd = 0;
+    private String _inheritedNamespaces = null;
+    private Charset _charset = null;
+    //  prefix & uri pairs declared by ancestors of element, and count per ancestor
+    private final List<String> _namespaces = new ArrayList<>();
+    private final Deque<Integer> _namespaceCounts = new ArrayDeque<>();
+    private int _depth = 0;
+    private int _elementDepth = 0;
+    private boolean _done = false;
+}
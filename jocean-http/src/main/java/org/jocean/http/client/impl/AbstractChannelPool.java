@@ -34,8 +34,24 @@ public abstract class AbstractChannelPool implements ChannelPool {
             }});
     }
 
+    @Override
+    public Observable<? extends Channel> limitNewChannel(final SocketAddress address,
+            final Observable<? extends Channel> newChannel) {
+        return newChannel;
+    }
+
+    @Override
+    public int idleChannelCount(final SocketAddress address) {
+        return 0;
+    }
+
     protected abstract Channel findActiveChannel(final SocketAddress address);
 
+    //  called in channel's eventLoop before channel reused
+    protected boolean isReusable(final Channel channel) {
+        return channel.isActive();
+    }
+
     private void doRetainChannel(final SocketAddress address,
             final Subscriber<? super Channel> subscriber) {
         final Channel channel = findActiveChannel(address);
@@ -61,7 +77,7 @@ public abstract class AbstractChannelPool implements ChannelPool {
             final Channel channel,
             final Subscriber<? super Channel> subscriber) {
         if (!subscriber.isUnsubscribed()) {
-            if (channel.isActive()) {
+            if (isReusable(channel)) {
                 LOG.info("fetch channel({}) of address ({}) for reuse.", channel, address);
                 subscriber.onNext(channel);
                 subscriber.onCompleted();
@@ -0,0 +1,389 @@
+package org.jocean.http.client.impl;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jocean.http.util.HandlerPrototype;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * ChannelPool with max connections per host:
+ *  when all connections to host are in use, acquirer will be queued (FIFO) until
+ *  a channel recycled or closed, or failed by acquire timeout,
+ *  and when pending acquirers reach maxPendingAcquires, new acquirer will be rejected.
+ */
+public class BoundedChannelPool extends DefaultChannelPool {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(BoundedChannelPool.class);
+
+    public BoundedChannelPool(final HandlerPrototype onChannelInactive,
+            final int maxConnectionsPerHost,
+            final int maxPendingAcquires,
+            final long acquireTimeoutMillis) {
+        super(onChannelInactive);
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive: " + maxConnectionsPerHost);
+        }
+        this._maxConnectionsPerHost = maxConnectionsPerHost;
+        this._maxPendingAcquires = maxPendingAcquires;
+        this._acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return this._maxConnectionsPerHost;
+    }
+
+    public int getMaxPendingAcquires() {
+        return this._maxPendingAcquires;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return this._acquireTimeoutMillis;
+    }
+
+    public int getTotalChannelCount() {
+        int total = 0;
+        for (final Host host : this._hosts.values()) {
+            synchronized (host) {
+                total += host._total;
+            }
+        }
+        return total;
+    }
+
+    public int getHostCount() {
+        return this._hosts.size();
+    }
+
+    public int getPendingAcquireCount() {
+        int pending = 0;
+        for (final Host host : this._hosts.values()) {
+            synchronized (host) {
+                pending += host._waiters.size();
+            }
+        }
+        return pending;
+    }
+
+    public long getNumRejectedAcquires() {
+        return this._numRejectedAcquires.get();
+    }
+
+    public long getNumTimeoutAcquires() {
+        return this._numTimeoutAcquires.get();
+    }
+
+    public long getNumHandoffAcquires() {
+        return this._numHandoffAcquires.get();
+    }
+
+    @Override
+    public Observable<? extends Channel> limitNewChannel(final SocketAddress address,
+            final Observable<? extends Channel> newChannel) {
+        return Observable.unsafeCreate(new Observable.OnSubscribe<Channel>() {
+            @Override
+            public void call(final Subscriber<? super Channel> subscriber) {
+                if (!subscriber.isUnsubscribed()) {
+                    doAcquire(address, BoundedChannelPool.super.limitNewChannel(address, newChannel), subscriber);
+                }
+            }});
+    }
+
+    @Override
+    public boolean recycleChannel(final Channel channel) {
+        final Host host = channel.attr(HOST_ATTR).get();
+        if (null != host && hasWaiter(host)) {
+            //  handoff in channel's eventLoop after current initiator terminated,
+            //  and channel must pass reuse checks as idle channel
+            channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (BoundedChannelPool.super.recycleChannel(channel)) {
+                        handoffIdleChannel(host);
+                    }
+                }});
+            //  not saved into pool now
+            return false;
+        }
+        return super.recycleChannel(channel);
+    }
+
+    private void doAcquire(final SocketAddress address,
+            final Observable<? extends Channel> newChannel,
+            final Subscriber<? super Channel> subscriber) {
+        Host host = null;
+        Waiter waiter = null;
+        boolean create = false;
+        boolean reject = false;
+        for (;;) {
+            host = getOrCreateHost(address);
+            waiter = new Waiter(host, newChannel, subscriber);
+            synchronized (host) {
+                if (host._removed) {
+                    //  host removed after fetched, retry with new one
+                    continue;
+                }
+                if (host._total < this._maxConnectionsPerHost) {
+                    host._total++;
+                    create = true;
+                } else if (host._waiters.size() >= this._maxPendingAcquires) {
+                    reject = true;
+                } else {
+                    host._waiters.add(waiter);
+                }
+                break;
+            }
+        }
+
+        if (create) {
+            createChannel(waiter);
+        } else if (reject) {
+            this._numRejectedAcquires.incrementAndGet();
+            LOG.warn("acquire channel for ({}) rejected, connections({}) and pending acquirers({}) both reach max.",
+                    host._address, this._maxConnectionsPerHost, this._maxPendingAcquires);
+            waiter._subscriber.onError(new ChannelPoolExhaustedException(
+                    "pending acquire queue for " + host._address + " is full"));
+        } else {
+            waitForChannel(waiter);
+        }
+    }
+
+    private void waitForChannel(final Waiter waiter) {
+        final Host host = waiter._host;
+        waiter._subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                if (waiter.tryFire()) {
+                    removeWaiter(host, waiter);
+                }
+            }}));
+        if (this._acquireTimeoutMillis > 0) {
+            waiter._timer = Observable.timer(this._acquireTimeoutMillis, TimeUnit.MILLISECONDS)
+                .subscribe(new Action1<Long>() {
+                    @Override
+                    public void call(final Long t) {
+                        if (waiter.tryFire()) {
+                            removeWaiter(host, waiter);
+                            _numTimeoutAcquires.incrementAndGet();
+                            waiter._subscriber.onError(new ChannelPoolExhaustedException(
+                                    "acquire channel for " + host._address + " timeout after "
+                                    + _acquireTimeoutMillis + " ms"));
+                        }
+                    }});
+        }
+
+        //  channel maybe recycled before waiter enqueued, so check idle channels again
+        handoffIdleChannel(host);
+    }
+
+    //  fetch idle channel (with idle/lifetime/validation checks) and handoff it to first pending acquirer
+    private void handoffIdleChannel(final Host host) {
+        final Channel channel = findActiveChannel(host._address);
+        if (null != channel) {
+            channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isReusable(channel)) {
+                        //  slot released when closed, and transfer to next waiter
+                        channel.close();
+                        return;
+                    }
+                    Waiter waiter = null;
+                    while (null != (waiter = pollWaiter(host))) {
+                        if (handoff(waiter, channel)) {
+                            LOG.info("handoffIdleChannel: channel({}) handoff to pending acquirer for ({}) directly.",
+                                    channel, host._address);
+                            return;
+                        }
+                    }
+                    if (BoundedChannelPool.super.recycleChannel(channel)) {
+                        // perform read for recv FIN SIG and to change state to close
+                        channel.read();
+                    }
+                }});
+        }
+    }
+
+    private boolean handoff(final Waiter waiter, final Channel channel) {
+        if (waiter.tryFire()) {
+            removeWaiter(waiter._host, waiter);
+            if (!waiter._subscriber.isUnsubscribed()) {
+                this._numHandoffAcquires.incrementAndGet();
+                waiter._subscriber.onNext(channel);
+                waiter._subscriber.onCompleted();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //  one slot has been reserved for waiter
+    private void createChannel(final Waiter waiter) {
+        final Host host = waiter._host;
+        if (waiter._subscriber.isUnsubscribed()) {
+            releaseSlot(host);
+            return;
+        }
+        final AtomicBoolean reserved = new AtomicBoolean(true);
+        final Action0 releaseIfUnbound = new Action0() {
+            @Override
+            public void call() {
+                if (reserved.compareAndSet(true, false)) {
+                    releaseSlot(host);
+                }
+            }};
+        waiter._subscriber.add(Subscriptions.create(releaseIfUnbound));
+        waiter._subscriber.add(waiter._newChannel.subscribe(new Subscriber<Channel>() {
+            @Override
+            public void onCompleted() {
+                waiter._subscriber.onCompleted();
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                releaseIfUnbound.call();
+                waiter._subscriber.onError(e);
+            }
+
+            @Override
+            public void onNext(final Channel channel) {
+                if (reserved.compareAndSet(true, false)) {
+                    bindToHost(host, channel);
+                }
+                waiter._subscriber.onNext(channel);
+            }}));
+    }
+
+    private void bindToHost(final Host host, final Channel channel) {
+        channel.attr(HOST_ATTR).set(host);
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture future) throws Exception {
+                LOG.debug("channel({}) closed, release it's slot for ({})", channel, host._address);
+                releaseSlot(host);
+            }});
+    }
+
+    //  transfer slot to next waiter, or decrease total count when no waiter,
+    //  and remove host without any slot, so hosts not grows with changing addresses
+    private void releaseSlot(final Host host) {
+        for (;;) {
+            final Waiter next;
+            synchronized (host) {
+                next = host._waiters.poll();
+                if (null == next) {
+                    if (--host._total == 0) {
+                        host._removed = true;
+                        this._hosts.remove(host._address, host);
+                    }
+                    return;
+                }
+            }
+            if (next.tryFire()) {
+                createChannel(next);
+                return;
+            }
+        }
+    }
+
+    private static boolean hasWaiter(final Host host) {
+        synchronized (host) {
+            return !host._waiters.isEmpty();
+        }
+    }
+
+    private static Waiter pollWaiter(final Host host) {
+        synchronized (host) {
+            return host._waiters.poll();
+        }
+    }
+
+    private static void removeWaiter(final Host host, final Waiter waiter) {
+        synchronized (host) {
+            host._waiters.remove(waiter);
+        }
+    }
+
+    private Host getOrCreateHost(final SocketAddress address) {
+        final Host host = this._hosts.get(address);
+        if (null == host) {
+            final Host newHost = new Host(address);
+            final Host previous = this._hosts.putIfAbsent(address, newHost);
+            return null != previous ? previous : newHost;
+        } else {
+            return host;
+        }
+    }
+
+    private static final class Host {
+        Host(final SocketAddress address) {
+            this._address = address;
+        }
+
+        private final SocketAddress _address;
+
+        //  guarded by this
+        private int _total = 0;
+        private final Queue<Waiter> _waiters = new ArrayDeque<>();
+        private boolean _removed = false;
+    }
+
+    private static final class Waiter {
+        Waiter(final Host host,
+                final Observable<? extends Channel> newChannel,
+                final Subscriber<? super Channel> subscriber) {
+            this._host = host;
+            this._newChannel = newChannel;
+            this._subscriber = subscriber;
+        }
+
+        boolean tryFire() {
+            if (this._fired.compareAndSet(false, true)) {
+                final Subscription timer = this._timer;
+                if (null != timer) {
+                    timer.unsubscribe();
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        private final Host _host;
+        private final Observable<? extends Channel> _newChannel;
+        private final Subscriber<? super Channel> _subscriber;
+        private final AtomicBoolean _fired = new AtomicBoolean(false);
+        private volatile Subscription _timer = null;
+    }
+
+    private static final AttributeKey<Host> HOST_ATTR = AttributeKey.valueOf("__BOUNDED_HOST");
+
+    private final int _maxConnectionsPerHost;
+    private final int _maxPendingAcquires;
+    private final long _acquireTimeoutMillis;
+
+    private final ConcurrentMap<SocketAddress, Host> _hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong _numRejectedAcquires = new AtomicLong(0);
+    private final AtomicLong _numTimeoutAcquires = new AtomicLong(0);
+    private final AtomicLong _numHandoffAcquires = new AtomicLong(0);
+}
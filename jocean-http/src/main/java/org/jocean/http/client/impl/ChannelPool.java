@@ -12,4 +12,11 @@ public interface ChannelPool {
     public Observable<Channel> retainChannel(final Func0<SocketAddress> addressProvider);
 
     public boolean recycleChannel(final Channel channel);
+
+    public int idleChannelCount(final SocketAddress address);
+
+    //  when no channel can be reused, HttpClient create new channel to address via newChannel,
+    //  pool can limit (or queue) the creation by wrap newChannel
+    public Observable<? extends Channel> limitNewChannel(final SocketAddress address,
+            final Observable<? extends Channel> newChannel);
 }
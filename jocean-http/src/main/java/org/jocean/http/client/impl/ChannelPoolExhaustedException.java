@@ -0,0 +1,12 @@
+package org.jocean.http.client.impl;
+
+import org.jocean.http.TransportException;
+
+public class ChannelPoolExhaustedException extends TransportException {
+
+    private static final long serialVersionUID = -3532245473151829806L;
+
+    public ChannelPoolExhaustedException(final String message) {
+        super(message);
+    }
+}
@@ -5,6 +5,8 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jocean.http.util.HandlerPrototype;
 import org.jocean.http.util.Nettys;
@@ -12,7 +14,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.AbstractNioChannel;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.util.AttributeKey;
+import rx.Observable;
 import rx.functions.Action0;
+import rx.functions.Action1;
 
 public class DefaultChannelPool extends AbstractChannelPool {
 
@@ -22,7 +30,58 @@ public class DefaultChannelPool extends AbstractChannelPool {
     public DefaultChannelPool(final HandlerPrototype onChannelInactive) {
         this._onChannelInactive = onChannelInactive;
     }
-    
+
+    //  idle channel in pool longer than idleTimeout will be evicted, 0 means never
+    public void setIdleTimeout(final long idleTimeout, final TimeUnit unit) {
+        this._idleTimeoutMillis = unit.toMillis(idleTimeout);
+    }
+
+    //  channel created longer than maxLifetime will not be reused, 0 means never
+    public void setMaxLifetime(final long maxLifetime, final TimeUnit unit) {
+        this._maxLifetimeMillis = unit.toMillis(maxLifetime);
+    }
+
+    public void setEvictionInterval(final long interval, final TimeUnit unit) {
+        this._evictionIntervalMillis = unit.toMillis(interval);
+    }
+
+    //  probe channel in it's eventLoop before reuse, drop it if peer has closed
+    public void setValidateBeforeReuse(final boolean validateBeforeReuse) {
+        this._validateBeforeReuse = validateBeforeReuse;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return this._idleTimeoutMillis;
+    }
+
+    public long getMaxLifetimeMillis() {
+        return this._maxLifetimeMillis;
+    }
+
+    public long getNumEvictedChannels() {
+        return this._numEvictedChannels.get();
+    }
+
+    public long getNumStaleOnBorrow() {
+        return this._numStaleOnBorrow.get();
+    }
+
+    @Override
+    public int idleChannelCount(final SocketAddress address) {
+        final Queue<Channel> channels = getChannels(address);
+        return null != channels ? channels.size() : 0;
+    }
+
+    @Override
+    public Observable<? extends Channel> limitNewChannel(final SocketAddress address,
+            final Observable<? extends Channel> newChannel) {
+        return newChannel.doOnNext(new Action1<Channel>() {
+            @Override
+            public void call(final Channel channel) {
+                channel.attr(CREATED_ATTR).setIfAbsent(System.currentTimeMillis());
+            }});
+    }
+
     @Override
     protected Channel findActiveChannel(final SocketAddress address) {
         final Queue<Channel> channels = getChannels(address);
@@ -33,22 +92,92 @@ public class DefaultChannelPool extends AbstractChannelPool {
         do {
             channel = channels.poll();
             if (null != channel) {
-                if (channel.isActive()) {
+                // 移除对 channel inactive 时的缺省处理 Handler
+                Nettys.removeHandler(channel.pipeline(), this._onChannelInactive);
+                if (isExpired(channel, System.currentTimeMillis())) {
+                    LOG.info("fetch expired channel({}) from pool, evict it and fetch next from pool.", channel);
+                    this._numEvictedChannels.incrementAndGet();
+                    channel.close();
+                } else {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("fetch active channel({}) from pool, try to reuse.", channel);
                     }
-                    // 移除对 channel inactive 时的缺省处理 Handler
-                    Nettys.removeHandler(channel.pipeline(), this._onChannelInactive);
                     break;
-                } else {
-                    LOG.info("fetch inactive channel({}) from pool, drop it and fetch next from pool.", channel);
-                    channel.close();
                 }
             }
         } while (null != channel);
         return channel;
     }
 
+    @Override
+    protected boolean isReusable(final Channel channel) {
+        if (this._validateBeforeReuse && !isAlive(channel)) {
+            LOG.info("channel({}) closed by peer before reuse, drop it.", channel);
+            this._numStaleOnBorrow.incrementAndGet();
+            return false;
+        }
+        return channel.isActive();
+    }
+
+    //  peer's FIN maybe not handled when no read pending, so read from socket now:
+    //  read EOF will close the channel (half-open channel)
+    private static boolean isAlive(final Channel channel) {
+        if (channel instanceof DuplexChannel && ((DuplexChannel)channel).isInputShutdown()) {
+            return false;
+        }
+        if (channel.isActive() && channel.unsafe() instanceof AbstractNioChannel.NioUnsafe) {
+            ((AbstractNioChannel.NioUnsafe)channel.unsafe()).read();
+        }
+        return channel.isActive();
+    }
+
+    private boolean isExpired(final Channel channel, final long now) {
+        if (this._idleTimeoutMillis > 0) {
+            final Long idleSince = channel.attr(IDLE_SINCE_ATTR).get();
+            if (null != idleSince && now - idleSince >= this._idleTimeoutMillis) {
+                return true;
+            }
+        }
+        if (this._maxLifetimeMillis > 0) {
+            final Long created = channel.attr(CREATED_ATTR).get();
+            if (null != created && now - created >= this._maxLifetimeMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleEvictionIfNeeded(final EventLoop eventLoop) {
+        if ((this._idleTimeoutMillis > 0 || this._maxLifetimeMillis > 0)
+            && !this._evictors.containsKey(eventLoop)
+            && null == this._evictors.putIfAbsent(eventLoop, Boolean.TRUE)) {
+            eventLoop.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    evictExpiredChannels(eventLoop);
+                }}, this._evictionIntervalMillis, this._evictionIntervalMillis, TimeUnit.MILLISECONDS);
+            LOG.info("schedule eviction for pooled channels on eventLoop({}) every {} ms.",
+                    eventLoop, this._evictionIntervalMillis);
+        }
+    }
+
+    //  run in eventLoop, only check channels owned by this eventLoop
+    private void evictExpiredChannels(final EventLoop eventLoop) {
+        final long now = System.currentTimeMillis();
+        for (final Queue<Channel> channels : this._channels.values()) {
+            for (final Channel channel : channels) {
+                if (channel.eventLoop() == eventLoop
+                    && isExpired(channel, now)
+                    && channels.remove(channel)) {
+                    Nettys.removeHandler(channel.pipeline(), this._onChannelInactive);
+                    this._numEvictedChannels.incrementAndGet();
+                    channel.close();
+                    LOG.info("evictChannel: channel({}) expired, so evict from pool.", channel);
+                }
+            }
+        }
+    }
+
     protected Queue<Channel> getChannels(final SocketAddress address) {
         return this._channels.get(address);
     }
@@ -72,6 +201,15 @@ public class DefaultChannelPool extends AbstractChannelPool {
             final SocketAddress address = channel.remoteAddress();
             if (null!=address) {
                 final Queue<Channel> channels = getOrCreateChannels(address);
+                final long now = System.currentTimeMillis();
+                channel.attr(CREATED_ATTR).setIfAbsent(now);
+                channel.attr(IDLE_SINCE_ATTR).set(now);
+                if (isExpired(channel, now)) {
+                    this._numEvictedChannels.incrementAndGet();
+                    channel.close();
+                    LOG.info("recycleChannel: channel({}) reach max lifetime, so close it.", channel);
+                    return false;
+                }
                 channels.add(channel);
                 Nettys.applyHandler(channel.pipeline(), _onChannelInactive,
                     new Action0() {
@@ -81,6 +219,7 @@ public class DefaultChannelPool extends AbstractChannelPool {
                             channel.close();
                             LOG.info("removeChannel: channel({}) inactive, so remove from pool.", channel);
                         }});
+                scheduleEvictionIfNeeded(channel.eventLoop());
                 LOG.info("recycleChannel: channel({}) save to queue for ({}), can be reused.", channel, address);
                 return  true;
             }
@@ -91,7 +230,20 @@ public class DefaultChannelPool extends AbstractChannelPool {
         return false;
     }
 
+    private static final AttributeKey<Long> CREATED_ATTR = AttributeKey.valueOf("__POOL_CREATED");
+    private static final AttributeKey<Long> IDLE_SINCE_ATTR = AttributeKey.valueOf("__POOL_IDLE_SINCE");
+
     private final ConcurrentMap<SocketAddress, Queue<Channel>> _channels = 
             new ConcurrentHashMap<>();
     private final HandlerPrototype _onChannelInactive;
+
+    private volatile long _idleTimeoutMillis = 0;
+    private volatile long _maxLifetimeMillis = 0;
+    private volatile long _evictionIntervalMillis = 1000;
+    private volatile boolean _validateBeforeReuse = false;
+
+    private final ConcurrentMap<EventLoop, Boolean> _evictors = new ConcurrentHashMap<>();
+
+    private final AtomicLong _numEvictedChannels = new AtomicLong(0);
+    private final AtomicLong _numStaleOnBorrow = new AtomicLong(0);
 }
@@ -6,9 +6,11 @@ package org.jocean.http.client.impl;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jocean.http.Feature;
+import org.jocean.http.TransportException;
 import org.jocean.http.client.HttpClient;
 import org.jocean.http.util.Feature2Handler;
 import org.jocean.http.util.HttpHandlers;
@@ -16,6 +18,7 @@ import org.jocean.http.util.Nettys;
 import org.jocean.http.util.Nettys.ChannelAware;
 import org.jocean.http.util.RxNettys;
 import org.jocean.http.util.TrafficCounterAware;
+import org.jocean.http.util.TransportType;
 import org.jocean.idiom.COWCompositeSupport;
 import org.jocean.idiom.ExceptionUtils;
 import org.jocean.idiom.InterfaceUtils;
@@ -28,16 +31,22 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFactory;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
 import rx.Observable;
 import rx.Subscriber;
+import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.functions.Actions;
 import rx.functions.Func0;
 import rx.functions.Func1;
+import rx.functions.Func2;
 import rx.subscriptions.Subscriptions;
 
 /**
@@ -88,11 +97,31 @@ public class DefaultHttpClient implements HttpClient {
         this._sendBufSize = sendBufSize;
     }
 
+    //  TCP_QUICKACK, only for EPOLL transport
+    public void setTcpQuickAck(final boolean tcpQuickAck) {
+        this._tcpQuickAck = tcpQuickAck;
+    }
+
+    //  TCP_FASTOPEN_CONNECT, only for EPOLL transport
+    public void setTcpFastOpenConnect(final boolean tcpFastOpenConnect) {
+        this._tcpFastOpenConnect = tcpFastOpenConnect;
+    }
+
+    //  null means transport decided by custom ChannelCreator
+    public TransportType getTransport() {
+        return this._transport;
+    }
+
     private final Action1<HttpInitiator> _RECYCLE_CHANNEL = new Action1<HttpInitiator>() {
         @Override
         public void call(final HttpInitiator initiator) {
             final DefaultHttpInitiator defaultInitiator = (DefaultHttpInitiator)initiator;
             final Channel channel = defaultInitiator.channel();
+            if (channel instanceof Http2StreamChannel) {
+                //  http2 stream can't be reused
+                channel.close();
+                return;
+            }
             if (!defaultInitiator.inTransacting()
                 && defaultInitiator.isKeepAlive()) {
                 if (_channelPool.recycleChannel(channel)) {
@@ -105,6 +134,19 @@ public class DefaultHttpClient implements HttpClient {
             }
         }};
 
+    private final Action1<Channel> _SET_NATIVE_OPTIONS = new Action1<Channel>() {
+        @Override
+        public void call(final Channel channel) {
+            if (channel instanceof EpollSocketChannel) {
+                if (_tcpQuickAck) {
+                    channel.config().setOption(EpollChannelOption.TCP_QUICKACK, true);
+                }
+                if (_tcpFastOpenConnect) {
+                    channel.config().setOption(EpollChannelOption.TCP_FASTOPEN_CONNECT, true);
+                }
+            }
+        }};
+
     private final Action1<Channel> _SET_SEND_RECV_BUF_SIZE = new Action1<Channel>() {
         @Override
         public void call(final Channel channel) {
@@ -192,14 +234,136 @@ public class DefaultHttpClient implements HttpClient {
             final Func0<SocketAddress> remoteAddressProvider,
             final Feature... features) {
         final Feature[] allfeatures = cloneFeatures(Feature.Util.union(this._defaultFeatures, features));
-        return this._channelPool.retainChannel(remoteAddressProvider)
-            .onErrorResumeNext(createChannelAndConnectTo(remoteAddressProvider, allfeatures))
+        return Observable.defer(new Func0<Observable<Channel>>() {
+                @Override
+                public Observable<Channel> call() {
+                    //  resolve remote address once, so reuse or create channel for the same address
+                    final SocketAddress remoteAddress = remoteAddressProvider.call();
+                    if (isHttp2Enabled(allfeatures)) {
+                        //  each initiator run as one stream of shared http2 connection
+                        return _http2Connections.newStream(remoteAddress, allfeatures);
+                    }
+                    return _channelPool.retainChannel(remoteAddress)
+                        .onErrorResumeNext(_channelPool.limitNewChannel(remoteAddress,
+                                createChannelAndConnectTo(remoteAddress, allfeatures)));
+                }})
             .doOnNext(fillChannelAware(allfeatures))
             .map(channel2initiator(allfeatures))
+            .doOnNext(enablePipeliningIfNeeded(features, allfeatures))
             .doOnNext(ON_INITIATOR)
             ;
     }
 
+    private Action1<HttpInitiator> enablePipeliningIfNeeded(final Feature[] features, final Feature[] allfeatures) {
+        Feature.ENABLE_PIPELINING pipelining = null;
+        for (final Feature feature : allfeatures) {
+            if (feature instanceof Feature.ENABLE_PIPELINING) {
+                pipelining = (Feature.ENABLE_PIPELINING)feature;
+            }
+        }
+        if (null == pipelining || pipelining.depth() <= 0) {
+            return Actions.empty();
+        }
+        final int depth = pipelining.depth();
+        return new Action1<HttpInitiator>() {
+            @Override
+            public void call(final HttpInitiator initiator) {
+                final DefaultHttpInitiator defaultInitiator = (DefaultHttpInitiator)initiator;
+                final SocketAddress remoteAddress = defaultInitiator.channel().remoteAddress();
+                defaultInitiator.enablePipelining(depth, new Func0<Observable<? extends HttpInitiator>>() {
+                    @Override
+                    public Observable<? extends HttpInitiator> call() {
+                        return initiator0(new Func0<SocketAddress>() {
+                            @Override
+                            public SocketAddress call() {
+                                return remoteAddress;
+                            }}, features);
+                    }});
+            }};
+    }
+
+    private final Action1<Channel> _RECYCLE_PREWARMED = new Action1<Channel>() {
+        @Override
+        public void call(final Channel channel) {
+            if (_channelPool.recycleChannel(channel)) {
+                // perform read for recv FIN SIG and to change state to close
+                channel.read();
+            }
+        }};
+
+    //  pre-open count channels to remoteAddress (include ssl handshake when ENABLE_SSL), and save them into pool
+    public Observable<? extends Channel> prewarm(
+            final SocketAddress remoteAddress,
+            final int count,
+            final Feature... features) {
+        final Feature[] allfeatures = cloneFeatures(Feature.Util.union(this._defaultFeatures, features));
+        return Observable.range(0, count)
+            .flatMap(new Func1<Integer, Observable<? extends Channel>>() {
+                @Override
+                public Observable<? extends Channel> call(final Integer idx) {
+                    return _channelPool.limitNewChannel(remoteAddress,
+                            createChannelAndConnectTo(remoteAddress, allfeatures))
+                        .cast(Channel.class)
+                        .doOnNext(_RECYCLE_PREWARMED)
+                        .onErrorResumeNext(new Func1<Throwable, Observable<Channel>>() {
+                            @Override
+                            public Observable<Channel> call(final Throwable e) {
+                                LOG.warn("exception when prewarm channel to ({}), detail: {}",
+                                        remoteAddress, ExceptionUtils.exception2detail(e));
+                                return Observable.empty();
+                            }});
+                }});
+    }
+
+    public Observable<? extends Channel> prewarm(
+            final Iterable<? extends SocketAddress> remoteAddresses,
+            final int countPerAddress,
+            final Feature... features) {
+        return Observable.from(remoteAddresses)
+            .flatMap(new Func1<SocketAddress, Observable<? extends Channel>>() {
+                @Override
+                public Observable<? extends Channel> call(final SocketAddress remoteAddress) {
+                    return prewarm(remoteAddress, countPerAddress, features);
+                }});
+    }
+
+    //  check idle channels count in pool for remoteAddress every checkInterval,
+    //  and prewarm new channels when it's less than minIdle, unsubscribe to stop
+    public Subscription keepMinIdle(
+            final SocketAddress remoteAddress,
+            final int minIdle,
+            final long checkInterval,
+            final TimeUnit unit,
+            final Feature... features) {
+        return Observable.interval(0, checkInterval, unit)
+            .onBackpressureDrop()
+            .concatMap(new Func1<Long, Observable<? extends Channel>>() {
+                @Override
+                public Observable<? extends Channel> call(final Long tick) {
+                    final int lack = minIdle - _channelPool.idleChannelCount(remoteAddress);
+                    if (lack > 0) {
+                        LOG.info("idle channels for ({}) less than {}, try to prewarm {} channels.",
+                                remoteAddress, minIdle, lack);
+                        return prewarm(remoteAddress, lack, features);
+                    } else {
+                        return Observable.empty();
+                    }
+                }})
+            .subscribe(new Action1<Channel>() {
+                @Override
+                public void call(final Channel channel) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("prewarm channel({}) for ({})", channel, remoteAddress);
+                    }
+                }},
+                new Action1<Throwable>() {
+                @Override
+                public void call(final Throwable e) {
+                    LOG.warn("keepMinIdle for ({}) stopped, detail: {}",
+                            remoteAddress, ExceptionUtils.exception2detail(e));
+                }});
+    }
+
     private Func1<Channel, HttpInitiator> channel2initiator(final Feature[] features) {
         return new Func1<Channel, HttpInitiator>() {
             @Override
@@ -264,13 +428,83 @@ public class DefaultHttpClient implements HttpClient {
     }
 
     private Observable<? extends Channel> createChannelAndConnectTo(
-            final Func0<SocketAddress> remoteAddressProvider,
+            final SocketAddress remoteAddress,
             final Feature[] features) {
         return this._channelCreator.newChannel()
             .doOnNext(_SET_SEND_RECV_BUF_SIZE)
+            .doOnNext(_SET_NATIVE_OPTIONS)
             .doOnNext(_DISABLE_AUTOREAD)
             .doOnNext(applyPerChannelFeatures(features))
-            .flatMap(RxNettys.asyncConnectToMaybeSSL(remoteAddressProvider));
+            .flatMap(RxNettys.asyncConnectToMaybeSSL(remoteAddress));
+    }
+
+    private static boolean isHttp2Enabled(final Feature[] features) {
+        for (final Feature feature : features) {
+            if (Feature.ENABLE_HTTP2 == feature) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Observable<? extends Channel> createHttp2ConnectionTo(
+            final SocketAddress remoteAddress,
+            final Feature[] features) {
+        return this._channelCreator.newChannel()
+            .doOnNext(_SET_SEND_RECV_BUF_SIZE)
+            .doOnNext(_SET_NATIVE_OPTIONS)
+            .doOnNext(applyHttp2ConnectionFeatures(features))
+            .flatMap(RxNettys.asyncConnectToMaybeSSL(remoteAddress))
+            .flatMap(_AFTER_CHANNEL_ACTIVE)
+            .flatMap(_ENSURE_H2_NEGOTIATED);
+    }
+
+    //  connect promise completed before channelActive fired, and http2 client preface sended in channelActive,
+    //  so emit connection in next event loop task, make sure preface sended before any stream's frame
+    private static final Func1<Channel, Observable<? extends Channel>> _AFTER_CHANNEL_ACTIVE =
+            new Func1<Channel, Observable<? extends Channel>>() {
+        @Override
+        public Observable<? extends Channel> call(final Channel channel) {
+            return Observable.unsafeCreate(new Observable.OnSubscribe<Channel>() {
+                @Override
+                public void call(final Subscriber<? super Channel> subscriber) {
+                    channel.eventLoop().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!subscriber.isUnsubscribed()) {
+                                subscriber.onNext(channel);
+                                subscriber.onCompleted();
+                            }
+                        }});
+                }});
+        }};
+
+    private static final Func1<Channel, Observable<? extends Channel>> _ENSURE_H2_NEGOTIATED =
+            new Func1<Channel, Observable<? extends Channel>>() {
+        @Override
+        public Observable<? extends Channel> call(final Channel channel) {
+            final SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+            if (null != sslHandler
+                && !ApplicationProtocolNames.HTTP_2.equals(sslHandler.applicationProtocol())) {
+                channel.close();
+                return Observable.error(new TransportException("h2 not negotiated via ALPN for " + channel
+                        + ", protocol: " + sslHandler.applicationProtocol()));
+            }
+            return Observable.just(channel);
+        }};
+
+    private static Action1<Channel> applyHttp2ConnectionFeatures(
+            final Feature[] features) {
+        return new Action1<Channel>() {
+            @Override
+            public void call(final Channel channel) {
+                Nettys.applyFeaturesToChannel(null,
+                    channel,
+                    _FOR_CHANNEL,
+                    features);
+                Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTP2CLIENT);
+            }
+        };
     }
 
     public static Action1<Channel> applyPerChannelFeatures(
@@ -323,15 +557,42 @@ public class DefaultHttpClient implements HttpClient {
     public DefaultHttpClient(final int processThreadNumber,
             final boolean pooled,
             final Feature... defaultFeatures) {
+        this(processThreadNumber, pooled, TransportType.NIO, defaultFeatures);
+    }
+
+    //  transport fallback to NIO when native transport unavailable
+    public DefaultHttpClient(final int processThreadNumber,
+            final boolean pooled,
+            final TransportType transport,
+            final Feature... defaultFeatures) {
+        this(TransportType.select(transport), processThreadNumber,
+            pooled ? new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE) : Nettys.unpoolChannels(),
+            defaultFeatures);
+    }
+
+    //  customized channel pool, eg: BoundedChannelPool with max connections per host
+    public DefaultHttpClient(final int processThreadNumber,
+            final TransportType transport,
+            final ChannelPool channelPool,
+            final Feature... defaultFeatures) {
+        this(TransportType.select(transport), processThreadNumber, channelPool, defaultFeatures);
+    }
+
+    private DefaultHttpClient(final TransportType transport,
+            final int processThreadNumber,
+            final ChannelPool channelPool,
+            final Feature... defaultFeatures) {
         this(new AbstractChannelCreator() {
             @Override
             protected void initializeBootstrap(final Bootstrap bootstrap) {
                 bootstrap
-                .group(new NioEventLoopGroup(processThreadNumber))
-                .channel(NioSocketChannel.class);
+                .group(transport.newEventLoopGroup(processThreadNumber))
+                .channel(transport.socketChannelType());
             }},
-            pooled ? new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE) : Nettys.unpoolChannels(),
+            channelPool,
             defaultFeatures);
+        this._transport = transport;
+        LOG.info("DefaultHttpClient using transport {}", transport);
     }
 
     public DefaultHttpClient(
@@ -377,6 +638,7 @@ public class DefaultHttpClient implements HttpClient {
 
     @Override
     public void close() {
+        this._http2Connections.close();
         // Shut down executor threads to exit.
         this._channelCreator.close();
     }
@@ -404,8 +666,18 @@ public class DefaultHttpClient implements HttpClient {
     private int _highWaterMark = -1;
     private int _sendBufSize = -1;
     private int _recvBufSize = -1;
+    private boolean _tcpQuickAck = false;
+    private boolean _tcpFastOpenConnect = false;
+    private TransportType _transport = null;
 
     private final ChannelPool _channelPool;
+
+    private final Http2Connections _http2Connections = new Http2Connections(
+            new Func2<SocketAddress, Feature[], Observable<? extends Channel>>() {
+                @Override
+                public Observable<? extends Channel> call(final SocketAddress remoteAddress, final Feature[] features) {
+                    return createHttp2ConnectionTo(remoteAddress, features);
+                }});
     private final ChannelCreator _channelCreator;
     private final Feature[] _defaultFeatures;
 
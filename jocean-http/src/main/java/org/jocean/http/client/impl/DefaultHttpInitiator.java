@@ -4,7 +4,13 @@
 package org.jocean.http.client.impl;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jocean.http.ByteBufSlice;
@@ -25,17 +31,19 @@ import org.slf4j.LoggerFactory;
 import io.netty.channel.Channel;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpUtil;
-import io.netty.handler.codec.http.LastHttpContent;
 import rx.Observable;
 import rx.Observable.Transformer;
+import rx.Subscriber;
 import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func0;
 import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
 
 /**
  * @author isdom
@@ -48,13 +56,15 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
             LoggerFactory.getLogger(DefaultHttpInitiator.class);
 
     private Observable<FullMessage<HttpResponse>> doInteraction(final Observable<? extends Object> request) {
-        final Observable<? extends HttpSlice> rawInbound = rawInbound().doOnSubscribe(new Action0() {
-            @Override
-            public void call() {
-                readMessage();
-                setOutbound(wrapRequest(request));
-            }
-        }).compose(RxObservables.<HttpSlice>ensureSubscribeAtmostOnce()).share();
+        final Observable<? extends HttpSlice> rawInbound = (isPipelining()
+                ? pipelinedInbound(request)
+                : rawInbound().doOnSubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        readMessage();
+                        setOutbound(wrapRequest(request));
+                    }
+                })).compose(RxObservables.<HttpSlice>ensureSubscribeAtmostOnce()).share();
 
         return rawInbound.flatMap(new Func1<HttpSlice, Observable<FullMessage<HttpResponse>>>() {
             @Override
@@ -96,7 +106,9 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
 
                                         @Override
                                         public Observable<? extends ByteBufSlice> content() {
-                                            return Observable.just(slice).concatWith(rawInbound)
+                                            //  whole response in 1st slice (eg: FullHttpResponse), skip concat with raw inbound
+                                            return (HttpSliceUtil.isLastSlice(slice) ? Observable.just(slice)
+                                                    : Observable.just(slice).concatWith(rawInbound))
 //                                            .doOnNext(new Action1<HttpSlice>() {
 //                                                @Override
 //                                                public void call(final HttpSlice slice) {
@@ -106,9 +118,7 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
                                             .takeUntil(new Func1<HttpSlice, Boolean>() {
                                                 @Override
                                                 public Boolean call(final HttpSlice slice) {
-                                                    final HttpObject last = slice.element().last().toBlocking().single().unwrap();
-//                                                    LOG.debug("{}'s content onNext's last: {}", resp, last);
-                                                    return last instanceof LastHttpContent;
+                                                    return HttpSliceUtil.isLastSlice(slice);
                                                 }
                                             })
 //                                            .doOnNext(new Action1<HttpSlice>() {
@@ -155,6 +165,234 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
         super(channel);
     }
 
+    //  enable HTTP/1.1 pipelining: interactions share this channel, request sended one by one
+    //  (at most depth requests without response), and response matched to interaction in FIFO order.
+    //  when channel closed, pending idempotent (or unsended) requests will be resend via successor initiator
+    void enablePipelining(final int depth, final Func0<Observable<? extends HttpInitiator>> successorBuilder) {
+        this._pipeliningDepth = depth;
+        this._successorBuilder = successorBuilder;
+        doOnTerminate(new Action0() {
+            @Override
+            public void call() {
+                runInEventLoop(new Runnable() {
+                    @Override
+                    public void run() {
+                        abortPipeline();
+                    }});
+            }});
+    }
+
+    boolean isPipelining() {
+        return this._pipeliningDepth > 0;
+    }
+
+    @Override
+    public boolean inTransacting() {
+        return isPipelining()
+            ? (this._pendingInteractions > 0)
+            : super.inTransacting();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        final HttpInitiator successor = this._successor;
+        if (null != successor) {
+            successor.close();
+        }
+    }
+
+    private Observable<HttpSlice> pipelinedInbound(final Observable<? extends Object> request) {
+        return Observable.unsafeCreate(new Observable.OnSubscribe<HttpSlice>() {
+            @Override
+            public void call(final Subscriber<? super HttpSlice> subscriber) {
+                if (!subscriber.isUnsubscribed()) {
+                    final Interaction interaction = new Interaction(request, subscriber);
+                    runInEventLoop(new Runnable() {
+                        @Override
+                        public void run() {
+                            enqueueInteraction(interaction);
+                        }});
+                }
+            }});
+    }
+
+    private void enqueueInteraction(final Interaction interaction) {
+        if (!isActive()) {
+            final Observable<? extends HttpInitiator> resendSuccessor = this._resendSuccessor;
+            if (null != resendSuccessor) {
+                //  interaction defined before pipeline aborted but enqueued after, never sended, so resend it too
+                resendBySuccessor(resendSuccessor, Collections.singletonList(interaction));
+                return;
+            }
+            interaction._subscriber.onError(new TransportException(this + " has terminated."));
+            return;
+        }
+        this._waitingSend.add(interaction);
+        updatePendingInteractions();
+        interaction._subscriber.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                runInEventLoop(new Runnable() {
+                    @Override
+                    public void run() {
+                        //  only unsended interaction can be canceled
+                        if (_waitingSend.remove(interaction)) {
+                            updatePendingInteractions();
+                        }
+                    }});
+            }}));
+        trySendNextRequest();
+    }
+
+    private void trySendNextRequest() {
+        if (null == this._sendingInteraction
+            && this._waitingResp.size() < this._pipeliningDepth) {
+            final Interaction interaction = this._waitingSend.poll();
+            if (null != interaction) {
+                this._waitingResp.add(interaction);
+                this._sendingInteraction = interaction;
+                if (this._waitingResp.peek() == interaction) {
+                    attachInbound(interaction);
+                }
+                setOutbound(wrapRequest(interaction._request));
+            }
+        }
+    }
+
+    private void attachInbound(final Interaction interaction) {
+        rawInbound().unsafeSubscribe(interaction._subscriber);
+        readMessage();
+    }
+
+    private void onPipelinedRequestSended() {
+        this._sendingInteraction = null;
+        //  outbound subscription will be reset after onCompleted, so send next request later
+        this._channel.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                trySendNextRequest();
+            }});
+    }
+
+    private void onPipelinedResponseRecvd() {
+        this._waitingResp.poll();
+        updatePendingInteractions();
+        final Interaction next = this._waitingResp.peek();
+        if (null != next) {
+            //  attach next interaction immediately, responses maybe decoded in the same read
+            attachInbound(next);
+        }
+        trySendNextRequest();
+    }
+
+    private void abortPipeline() {
+        final List<Interaction> resends = new ArrayList<>();
+        final List<Interaction> fails = new ArrayList<>();
+
+        //  head interaction has been notified by inbound onError
+        this._waitingResp.poll();
+        for (final Interaction interaction : this._waitingResp) {
+            //  request not written yet is safe to resend whatever it's method
+            if (interaction.canResend()) {
+                resends.add(interaction);
+            } else {
+                fails.add(interaction);
+            }
+        }
+        resends.addAll(this._waitingSend);
+        this._waitingResp.clear();
+        this._waitingSend.clear();
+        this._sendingInteraction = null;
+        updatePendingInteractions();
+
+        for (final Interaction interaction : fails) {
+            LOG.warn("{} aborted, non-idempotent pipelined request can't be resend, just fail it.", this);
+            interaction._subscriber.onError(new TransportException("pipeline of " + this._channel + " aborted"));
+        }
+
+        if (!resends.isEmpty()) {
+            final Func0<Observable<? extends HttpInitiator>> successorBuilder = this._successorBuilder;
+            if (null != successorBuilder) {
+                LOG.info("{} aborted, resend {} pipelined requests via successor initiator.", this, resends.size());
+                this._resendSuccessor = successorBuilder.call().cache();
+                resendBySuccessor(this._resendSuccessor, resends);
+            } else {
+                for (final Interaction interaction : resends) {
+                    interaction._subscriber.onError(new TransportException("pipeline of " + this._channel + " aborted"));
+                }
+            }
+        }
+    }
+
+    private void resendBySuccessor(final Observable<? extends HttpInitiator> successor,
+            final List<Interaction> resends) {
+        for (final Interaction interaction : resends) {
+            successor.subscribe(new Action1<HttpInitiator>() {
+                @Override
+                public void call(final HttpInitiator initiator) {
+                    final DefaultHttpInitiator successor = (DefaultHttpInitiator)initiator;
+                    //  resend only once
+                    successor._successorBuilder = null;
+                    _successor = successor;
+                    successor.pipelinedInbound(interaction._request).unsafeSubscribe(interaction._subscriber);
+                }},
+                new Action1<Throwable>() {
+                @Override
+                public void call(final Throwable e) {
+                    interaction._subscriber.onError(e);
+                }});
+        }
+    }
+
+    private void updatePendingInteractions() {
+        this._pendingInteractions = this._waitingResp.size() + this._waitingSend.size();
+    }
+
+    private void runInEventLoop(final Runnable task) {
+        if (this._channel.eventLoop().inEventLoop()) {
+            task.run();
+        } else {
+            try {
+                this._channel.eventLoop().execute(task);
+            } catch (final RejectedExecutionException e) {
+                LOG.warn("eventLoop of {} has been shutdown, run task({}) in current thread.", this, task);
+                task.run();
+            }
+        }
+    }
+
+    private static boolean isIdempotent(final HttpMethod method) {
+        return HttpMethod.GET.equals(method)
+            || HttpMethod.HEAD.equals(method)
+            || HttpMethod.OPTIONS.equals(method)
+            || HttpMethod.TRACE.equals(method)
+            || HttpMethod.PUT.equals(method)
+            || HttpMethod.DELETE.equals(method);
+    }
+
+    private static final class Interaction {
+        Interaction(final Observable<? extends Object> request, final Subscriber<? super HttpSlice> subscriber) {
+            this._request = request;
+            this._subscriber = subscriber;
+        }
+
+        void onRequestSending(final HttpRequest request) {
+            this._sended = true;
+            this._idempotent = isIdempotent(request.method());
+        }
+
+        boolean canResend() {
+            return !this._sended || this._idempotent;
+        }
+
+        private final Observable<? extends Object> _request;
+        private final Subscriber<? super HttpSlice> _subscriber;
+        //  request's method unknown until it's HttpRequest emitted, so idempotent decided when sending
+        private volatile boolean _sended = false;
+        private volatile boolean _idempotent = false;
+    }
+
     private Observable<? extends Object> wrapRequest(final Observable<? extends Object> request) {
         if (Nettys.isSupportCompress(this._channel)) {
             return request.map(new Func1<Object, Object>() {
@@ -194,6 +432,9 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
     @Override
     protected void onInboundCompleted() {
         endofTransaction();
+        if (isPipelining()) {
+            onPipelinedResponseRecvd();
+        }
     }
 
     @Override
@@ -205,14 +446,21 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
 
         if (outmsg instanceof HttpRequest) {
             this._isKeepAlive = HttpUtil.isKeepAlive((HttpRequest)outmsg);
+            final Interaction interaction = this._sendingInteraction;
+            if (null != interaction) {
+                interaction.onRequestSending((HttpRequest)outmsg);
+            }
         }
     }
 
     @Override
     protected void onOutboundCompleted() {
         // force flush for _isFlushPerWrite = false
-        this._channel.flush();
+        flushOutbound();
         this._isRequestCompleted = true;
+        if (isPipelining()) {
+            onPipelinedRequestSended();
+        }
     }
 
     private void startSending() {
@@ -247,6 +495,17 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
 
     private volatile boolean _isRequestCompleted = false;
 
+    private volatile int _pipeliningDepth = 0;
+    private volatile Func0<Observable<? extends HttpInitiator>> _successorBuilder = null;
+    private volatile HttpInitiator _successor = null;
+    private volatile Observable<? extends HttpInitiator> _resendSuccessor = null;
+
+    //  pipelining states, modified in eventLoop only
+    private final Queue<Interaction> _waitingSend = new ArrayDeque<>();
+    private final Queue<Interaction> _waitingResp = new ArrayDeque<>();
+    private volatile Interaction _sendingInteraction = null;
+    private volatile int _pendingInteractions = 0;
+
     private final long _createTimeMillis = System.currentTimeMillis();
 
   private static final Action1<Object> _ADD_ACCEPT_ENCODING = new Action1<Object>() {
@@ -306,6 +565,8 @@ class DefaultHttpInitiator extends HttpConnection<HttpInitiator>
               .append(", transactionStatus=").append(transactionStatusAsString())
               .append(", isKeepAlive=").append(isKeepAlive())
               .append(", isRequestCompleted=").append(_isRequestCompleted)
+              .append(", pipeliningDepth=").append(_pipeliningDepth)
+              .append(", pendingInteractions=").append(_pendingInteractions)
               .append(", channel=").append(_channel)
               .append("]")
               .toString();
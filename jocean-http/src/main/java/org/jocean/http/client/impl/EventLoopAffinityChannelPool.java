@@ -0,0 +1,170 @@
+package org.jocean.http.client.impl;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jocean.http.util.HandlerPrototype;
+import org.jocean.http.util.Nettys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import rx.functions.Action0;
+
+/**
+ * ChannelPool which partition idle channels by (address, eventLoop):
+ *  channel owned by caller's event loop will be reused first, so reuse can skip the thread hop,
+ *  and channel on other event loop will be reused only when caller's partition is empty.
+ */
+public class EventLoopAffinityChannelPool extends AbstractChannelPool {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(EventLoopAffinityChannelPool.class);
+
+    public EventLoopAffinityChannelPool(final HandlerPrototype onChannelInactive) {
+        this._onChannelInactive = onChannelInactive;
+    }
+
+    public long getNumSameLoopReuses() {
+        return this._numSameLoopReuses.get();
+    }
+
+    public long getNumCrossLoopReuses() {
+        return this._numCrossLoopReuses.get();
+    }
+
+    public long getNumReuseMisses() {
+        return this._numReuseMisses.get();
+    }
+
+    public int getIdleChannelCount() {
+        int count = 0;
+        for (final Map<EventLoop, Queue<Channel>> partitions : this._channels.values()) {
+            for (final Queue<Channel> channels : partitions.values()) {
+                count += channels.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int idleChannelCount(final SocketAddress address) {
+        final Map<EventLoop, Queue<Channel>> partitions = this._channels.get(address);
+        int count = 0;
+        if (null != partitions) {
+            for (final Queue<Channel> channels : partitions.values()) {
+                count += channels.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    protected Channel findActiveChannel(final SocketAddress address) {
+        final Map<EventLoop, Queue<Channel>> partitions = this._channels.get(address);
+        if (null != partitions) {
+            //  first: try channels owned by current event loop
+            for (final Map.Entry<EventLoop, Queue<Channel>> entry : partitions.entrySet()) {
+                if (entry.getKey().inEventLoop()) {
+                    final Channel channel = pollActiveChannel(entry.getValue());
+                    if (null != channel) {
+                        this._numSameLoopReuses.incrementAndGet();
+                        return channel;
+                    }
+                    break;
+                }
+            }
+            //  then: channels owned by other event loops
+            for (final Map.Entry<EventLoop, Queue<Channel>> entry : partitions.entrySet()) {
+                if (!entry.getKey().inEventLoop()) {
+                    final Channel channel = pollActiveChannel(entry.getValue());
+                    if (null != channel) {
+                        this._numCrossLoopReuses.incrementAndGet();
+                        return channel;
+                    }
+                }
+            }
+        }
+        this._numReuseMisses.incrementAndGet();
+        return null;
+    }
+
+    private Channel pollActiveChannel(final Queue<Channel> channels) {
+        Channel channel = null;
+        do {
+            channel = channels.poll();
+            if (null != channel) {
+                if (channel.isActive()) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("fetch active channel({}) from pool, try to reuse.", channel);
+                    }
+                    // 移除对 channel inactive 时的缺省处理 Handler
+                    Nettys.removeHandler(channel.pipeline(), this._onChannelInactive);
+                    break;
+                } else {
+                    LOG.info("fetch inactive channel({}) from pool, drop it and fetch next from pool.", channel);
+                    channel.close();
+                }
+            }
+        } while (null != channel);
+        return channel;
+    }
+
+    private Queue<Channel> getOrCreateChannels(final SocketAddress address, final EventLoop eventLoop) {
+        ConcurrentMap<EventLoop, Queue<Channel>> partitions = this._channels.get(address);
+        if (null == partitions) {
+            final ConcurrentMap<EventLoop, Queue<Channel>> newPartitions = new ConcurrentHashMap<>();
+            final ConcurrentMap<EventLoop, Queue<Channel>> previous = this._channels.putIfAbsent(address, newPartitions);
+            partitions = null != previous ? previous : newPartitions;
+        }
+        final Queue<Channel> channels = partitions.get(eventLoop);
+        if (null == channels) {
+            final Queue<Channel> newChannels = new ConcurrentLinkedQueue<Channel>();
+            final Queue<Channel> previous = partitions.putIfAbsent(eventLoop, newChannels);
+            return null != previous ? previous : newChannels;
+        } else {
+            return channels;
+        }
+    }
+
+    @Override
+    public boolean recycleChannel(final Channel channel) {
+        if (channel.isActive()
+            && Nettys.isChannelReady(channel)) {
+            final SocketAddress address = channel.remoteAddress();
+            if (null != address) {
+                final Queue<Channel> channels = getOrCreateChannels(address, channel.eventLoop());
+                channels.add(channel);
+                Nettys.applyHandler(channel.pipeline(), _onChannelInactive,
+                    new Action0() {
+                        @Override
+                        public void call() {
+                            channels.remove(channel);
+                            channel.close();
+                            LOG.info("removeChannel: channel({}) inactive, so remove from pool.", channel);
+                        }});
+                LOG.info("recycleChannel: channel({}) save to queue for ({}/{}), can be reused.",
+                        channel, address, channel.eventLoop());
+                return true;
+            }
+        }
+
+        channel.close();
+        LOG.info("recycleChannel: try recycle channel({}), BUT it has been closed.", channel);
+        return false;
+    }
+
+    private final ConcurrentMap<SocketAddress, ConcurrentMap<EventLoop, Queue<Channel>>> _channels =
+            new ConcurrentHashMap<>();
+    private final HandlerPrototype _onChannelInactive;
+
+    private final AtomicLong _numSameLoopReuses = new AtomicLong(0);
+    private final AtomicLong _numCrossLoopReuses = new AtomicLong(0);
+    private final AtomicLong _numReuseMisses = new AtomicLong(0);
+}
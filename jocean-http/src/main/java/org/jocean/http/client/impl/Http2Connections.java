@@ -0,0 +1,156 @@
+package org.jocean.http.client.impl;
+
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jocean.http.Feature;
+import org.jocean.http.util.HttpHandlers;
+import org.jocean.http.util.Nettys;
+import org.jocean.idiom.Ordered;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * HTTP/2 connections shared by remote address, every new stream can be used as
+ * HTTP/1.x style channel (HttpObject in and out) for HttpInitiator.
+ */
+class Http2Connections {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(Http2Connections.class);
+
+    Http2Connections(final Func2<SocketAddress, Feature[], Observable<? extends Channel>> connector) {
+        this._connector = connector;
+    }
+
+    Observable<Channel> newStream(final SocketAddress address, final Feature[] features) {
+        return connectionOf(address, features).flatMap(new Func1<Channel, Observable<? extends Channel>>() {
+            @Override
+            public Observable<? extends Channel> call(final Channel connection) {
+                return openStream(connection);
+            }});
+    }
+
+    int connectionCount() {
+        return this._connections.size();
+    }
+
+    //  close all established connections, and streams over them
+    void close() {
+        this._connections.clear();
+        for (final Channel connection : this._established) {
+            connection.close();
+        }
+    }
+
+    private Observable<? extends Channel> connectionOf(final SocketAddress address, final Feature[] features) {
+        final Observable<? extends Channel> connection = this._connections.get(address);
+        if (null != connection) {
+            return connection;
+        }
+        final Observable<? extends Channel> newConnection = newConnection(address, features);
+        final Observable<? extends Channel> previous = this._connections.putIfAbsent(address, newConnection);
+        return null != previous ? previous : newConnection;
+    }
+
+    private Observable<? extends Channel> newConnection(final SocketAddress address, final Feature[] features) {
+        final AtomicReference<Observable<? extends Channel>> self = new AtomicReference<>();
+        final Action0 removeConnection = new Action0() {
+            @Override
+            public void call() {
+                //  next newStream for address will create new connection
+                _connections.remove(address, self.get());
+            }};
+        self.set(this._connector.call(address, features)
+            .doOnNext(new Action1<Channel>() {
+                @Override
+                public void call(final Channel connection) {
+                    LOG.info("http2 connection({}) to ({}) established.", connection, address);
+                    _established.add(connection);
+                    connection.closeFuture().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(final ChannelFuture future) throws Exception {
+                            LOG.info("http2 connection({}) to ({}) closed.", connection, address);
+                            _established.remove(connection);
+                            removeConnection.call();
+                        }});
+                }})
+            .doOnError(new Action1<Throwable>() {
+                @Override
+                public void call(final Throwable e) {
+                    removeConnection.call();
+                }})
+            .cache());
+        return self.get();
+    }
+
+    private static Observable<? extends Channel> openStream(final Channel connection) {
+        return Observable.unsafeCreate(new Observable.OnSubscribe<Channel>() {
+            @Override
+            public void call(final Subscriber<? super Channel> subscriber) {
+                if (!subscriber.isUnsubscribed()) {
+                    final Future<Http2StreamChannel> future =
+                            new Http2StreamChannelBootstrap(connection).handler(STREAM_INITIALIZER).open();
+                    future.addListener(new GenericFutureListener<Future<Http2StreamChannel>>() {
+                        @Override
+                        public void operationComplete(final Future<Http2StreamChannel> f) throws Exception {
+                            if (f.isSuccess()) {
+                                subscriber.onNext(f.getNow());
+                                subscriber.onCompleted();
+                            } else {
+                                subscriber.onError(f.cause());
+                            }
+                        }});
+                    subscriber.add(Subscriptions.from(future));
+                }
+            }});
+    }
+
+    private static class StreamInitializer extends ChannelInitializer<Channel> implements Ordered {
+        @Override
+        public int ordinal() {
+            return -1000;
+        }
+        @Override
+        protected void initChannel(final Channel stream) throws Exception {
+            stream.config().setAutoRead(false);
+            Nettys.applyHandler(stream.pipeline(), HttpHandlers.HTTP2CLIENT_STREAM);
+            Nettys.setChannelReady(stream);
+        }
+        @Override
+        public String toString() {
+            return "[Http2Connections' StreamInitializer]";
+        }
+    }
+
+    private static final ChannelHandler STREAM_INITIALIZER = new StreamInitializer();
+
+    private final Func2<SocketAddress, Feature[], Observable<? extends Channel>> _connector;
+
+    private final ConcurrentMap<SocketAddress, Observable<? extends Channel>> _connections =
+            new ConcurrentHashMap<>();
+
+    private final Set<Channel> _established =
+            Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+}
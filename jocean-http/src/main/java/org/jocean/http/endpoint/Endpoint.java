@@ -3,4 +3,14 @@ package org.jocean.http.endpoint;
 public interface Endpoint {
     public String type();
     public String uri();
+
+    //  endpoint with relative weight for weighted selection, treated as weight 1 if not implemented
+    public interface Weighted extends Endpoint {
+        public int weight();
+    }
+
+    //  endpoint with locality (eg: zone or rack), for routing prefer to same zone
+    public interface Located extends Endpoint {
+        public String zone();
+    }
 }
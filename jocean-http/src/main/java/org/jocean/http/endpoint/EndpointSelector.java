@@ -0,0 +1,9 @@
+package org.jocean.http.endpoint;
+
+/**
+ * strategy to select endpoint for interaction among endpoints of same type, see EndpointSelectors
+ */
+public interface EndpointSelector {
+    //  candidates is not empty, return one of them
+    public EndpointStat select(final EndpointStat[] candidates);
+}
@@ -0,0 +1,144 @@
+package org.jocean.http.endpoint;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * build-in EndpointSelector(s):
+ *  random: select uniformly, ignore stats
+ *  leastInflight: power-of-two-choices, select the one with less inflight interactions
+ *  peakEwma: power-of-two-choices, select the one with less latencyEwma * (inflight + 1)
+ *  weightedRoundRobin: smooth weighted round-robin by Endpoint.Weighted's weight
+ */
+public class EndpointSelectors {
+
+    private EndpointSelectors() {
+        throw new IllegalStateException("No instances!");
+    }
+
+    //  cost of endpoint without latency sample but busy, so endpoint measured prefer to it
+    private static final double _PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final EndpointSelector _RANDOM = new EndpointSelector() {
+        @Override
+        public EndpointStat select(final EndpointStat[] candidates) {
+            return candidates[ThreadLocalRandom.current().nextInt(candidates.length)];
+        }
+        @Override
+        public String toString() {
+            return "random";
+        }};
+
+    private static final EndpointSelector _LEAST_INFLIGHT = new PowerOfTwoChoices() {
+        @Override
+        double cost(final EndpointStat stat) {
+            return stat.inflight();
+        }
+        @Override
+        public String toString() {
+            return "leastInflight";
+        }};
+
+    private static final EndpointSelector _PEAK_EWMA = new PowerOfTwoChoices() {
+        @Override
+        double cost(final EndpointStat stat) {
+            final double ewma = stat.latencyEwma();
+            final int inflight = stat.inflight();
+            if (ewma == 0.0 && inflight > 0) {
+                return _PENALTY_NANOS + inflight;
+            }
+            return ewma * (inflight + 1);
+        }
+        @Override
+        public String toString() {
+            return "peakEwma";
+        }};
+
+    public static EndpointSelector random() {
+        return _RANDOM;
+    }
+
+    public static EndpointSelector leastInflight() {
+        return _LEAST_INFLIGHT;
+    }
+
+    public static EndpointSelector peakEwma() {
+        return _PEAK_EWMA;
+    }
+
+    //  keep current weight of each endpoint, so create one for each EndpointSet
+    public static EndpointSelector weightedRoundRobin() {
+        return new WeightedRoundRobin();
+    }
+
+    //  select by name, eg: configured in spring xml
+    public static EndpointSelector byName(final String name) {
+        if ("random".equals(name)) {
+            return random();
+        } else if ("leastInflight".equals(name)) {
+            return leastInflight();
+        } else if ("peakEwma".equals(name)) {
+            return peakEwma();
+        } else if ("weightedRoundRobin".equals(name)) {
+            return weightedRoundRobin();
+        } else {
+            throw new IllegalArgumentException("unknown EndpointSelector: " + name);
+        }
+    }
+
+    static int weightOf(final EndpointStat stat) {
+        final Endpoint endpoint = stat.endpoint();
+        return endpoint instanceof Endpoint.Weighted ? Math.max(((Endpoint.Weighted)endpoint).weight(), 0) : 1;
+    }
+
+    private static abstract class PowerOfTwoChoices implements EndpointSelector {
+        abstract double cost(final EndpointStat stat);
+
+        @Override
+        public EndpointStat select(final EndpointStat[] candidates) {
+            if (candidates.length == 1) {
+                return candidates[0];
+            }
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(candidates.length);
+            //  second differ from first
+            int second = random.nextInt(candidates.length - 1);
+            if (second >= first) {
+                second++;
+            }
+            return cost(candidates[second]) < cost(candidates[first]) ? candidates[second] : candidates[first];
+        }
+    }
+
+    private static final class WeightedRoundRobin implements EndpointSelector {
+        @Override
+        public synchronized EndpointStat select(final EndpointStat[] candidates) {
+            EndpointStat selected = null;
+            int selectedCurrent = 0;
+            int total = 0;
+            for (final EndpointStat stat : candidates) {
+                final int weight = weightOf(stat);
+                total += weight;
+                final Integer prev = this._currents.get(stat);
+                final int current = (null != prev ? prev : 0) + weight;
+                this._currents.put(stat, current);
+                if (null == selected || current > selectedCurrent) {
+                    selected = stat;
+                    selectedCurrent = current;
+                }
+            }
+            this._currents.put(selected, selectedCurrent - total);
+            return selected;
+        }
+
+        @Override
+        public String toString() {
+            return "weightedRoundRobin";
+        }
+
+        //  weak keys, so stat of removed endpoint will be collected
+        private final Map<EndpointStat, Integer> _currents = new WeakHashMap<>();
+    }
+}
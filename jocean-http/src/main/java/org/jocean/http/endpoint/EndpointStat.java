@@ -0,0 +1,23 @@
+package org.jocean.http.endpoint;
+
+/**
+ * runtime statistics and health of endpoint's uri, fed by interactions executed via EndpointSet.of(...)
+ */
+public interface EndpointStat {
+    public Endpoint endpoint();
+
+    //  interactions executing and not yet responded
+    public int inflight();
+
+    //  peak-EWMA of response latency in nanoseconds, 0 if no sample yet
+    public double latencyEwma();
+
+    //  failures in a row, reset by success or ejection
+    public int consecutiveFailures();
+
+    //  failures / requests in current interval of outlier detection
+    public float failureRate();
+
+    //  ejected as outlier, and not selected until ejection time passed
+    public boolean isEjected();
+}
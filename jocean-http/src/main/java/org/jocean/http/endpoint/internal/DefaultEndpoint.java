@@ -2,11 +2,22 @@ package org.jocean.http.endpoint.internal;
 
 import org.jocean.http.endpoint.Endpoint;
 
-public class DefaultEndpoint implements Endpoint {
+public class DefaultEndpoint implements Endpoint.Weighted, Endpoint.Located {
 
     public DefaultEndpoint(final String type, final String uri) {
+        this(type, uri, 1);
+    }
+
+    public DefaultEndpoint(final String type, final String uri, final int weight) {
+        this(type, uri, weight, null);
+    }
+
+    //  empty zone as no zone
+    public DefaultEndpoint(final String type, final String uri, final int weight, final String zone) {
         this._type = type;
         this._uri = uri;
+        this._weight = weight;
+        this._zone = null != zone && !zone.isEmpty() ? zone : null;
     }
 
     @Override
@@ -19,6 +30,18 @@ public class DefaultEndpoint implements Endpoint {
         return this._uri;
     }
 
+    @Override
+    public int weight() {
+        return this._weight;
+    }
+
+    @Override
+    public String zone() {
+        return this._zone;
+    }
+
     private final String _type;
     private final String _uri;
+    private final int _weight;
+    private final String _zone;
 }
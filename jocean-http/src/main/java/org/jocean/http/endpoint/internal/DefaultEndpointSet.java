@@ -1,42 +1,152 @@
 package org.jocean.http.endpoint.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jocean.http.Interact;
 import org.jocean.http.TypedSPI;
 import org.jocean.http.endpoint.Endpoint;
+import org.jocean.http.endpoint.EndpointSelector;
+import org.jocean.http.endpoint.EndpointSelectors;
 import org.jocean.http.endpoint.EndpointSet;
+import org.jocean.http.endpoint.EndpointStat;
+import org.jocean.http.endpoint.mbean.EndpointSetMXBean;
+import org.jocean.idiom.jmx.MBeanRegister;
+import org.jocean.idiom.jmx.MBeanRegisterAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import rx.Observable;
 import rx.Observable.Transformer;
-import rx.functions.Action1;
+import rx.functions.Func1;
 
-public class DefaultEndpointSet implements EndpointSet {
+public class DefaultEndpointSet implements EndpointSet, MBeanRegisterAware {
 
     private static final Logger LOG =
             LoggerFactory.getLogger(DefaultEndpointSet.class);
 
     private static final String[] EMPTY_STRS = new String[0];
 
+    private static final Endpoint[] EMPTY_ENDPOINTS = new Endpoint[0];
+
     public DefaultEndpointSet(final Collection<Endpoint> endpoints) {
+        this(endpoints, EndpointSelectors.random());
+    }
+
+    public DefaultEndpointSet(final Collection<Endpoint> endpoints, final EndpointSelector selector) {
         this._endpoints = endpoints;
+        this._selector = selector;
+    }
+
+    public void setMbeanSuffix(final String mbeanSuffix) {
+        this._mbeanSuffix = mbeanSuffix;
+    }
+
+    //  eject endpoint after failures in a row
+    public void setConsecutiveFailures(final int consecutiveFailures) {
+        this._consecutiveFailures = consecutiveFailures;
+    }
+
+    //  eject endpoint whose failure rate in interval reach percent, with at least minRequestVolume requests
+    public void setFailureRatePercent(final int failureRatePercent) {
+        this._failureRatePercent = failureRatePercent;
+    }
+
+    public void setMinRequestVolume(final int minRequestVolume) {
+        this._minRequestVolume = minRequestVolume;
+    }
+
+    public void setFailureRateIntervalInMs(final long intervalInMs) {
+        this._intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalInMs);
+    }
+
+    public void setBaseEjectionTimeInMs(final long baseEjectionTimeInMs) {
+        this._baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionTimeInMs);
+    }
+
+    public void setMaxEjectionTimeInMs(final long maxEjectionTimeInMs) {
+        this._maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionTimeInMs);
+    }
+
+    //  at most percent of endpoints (at least one if more than one) of same type ejected at once
+    public void setMaxEjectionPercent(final int maxEjectionPercent) {
+        this._maxEjectionPercent = maxEjectionPercent;
+    }
+
+    //  zone of this process, prefer to endpoints of same zone if set
+    public void setLocalZone(final String localZone) {
+        this._localZone = null != localZone && !localZone.isEmpty() ? localZone : null;
+        this._typeStats.clear();
+    }
+
+    //  spill over to other zones when healthy (not ejected) local endpoints less than percent of local endpoints
+    public void setMinLocalHealthyPercent(final int minLocalHealthyPercent) {
+        this._minLocalHealthyPercent = minLocalHealthyPercent;
+    }
+
+    //  spill over to other zones when average inflight of healthy local endpoints reach it, 0 for unlimited
+    public void setMaxLocalInflightPerEndpoint(final int maxLocalInflightPerEndpoint) {
+        this._maxLocalInflightPerEndpoint = maxLocalInflightPerEndpoint;
     }
 
     @Override
-    public String[] uris(final String type) {
-        final List<String> uris = new ArrayList<>();
+    public void setMBeanRegister(final MBeanRegister register) {
+        register.registerMBean(this._mbeanSuffix, new EndpointSetMXBean() {
+            @Override
+            public String getSelector() {
+                return _selector.toString();
+            }
 
-        for (final Endpoint endpoint : this._endpoints) {
-            if (endpoint.type().equals(type)) {
-                uris.add(endpoint.uri());
+            @Override
+            public long getEjectionCount() {
+                return _ejectionCount.get();
             }
-        }
 
-        return uris.toArray(EMPTY_STRS);
+            @Override
+            public String[] getEjectedEndpoints() {
+                final List<String> ejected = new ArrayList<>();
+                for (final DefaultEndpointStat stat : _stats.values()) {
+                    if (stat.isEjected()) {
+                        ejected.add(stat.endpoint().uri());
+                    }
+                }
+                return ejected.toArray(EMPTY_STRS);
+            }
+
+            @Override
+            public String getLocalZone() {
+                return _localZone;
+            }
+
+            @Override
+            public long getLocalRequestCount() {
+                return _localCount.get();
+            }
+
+            @Override
+            public long getSpilledRequestCount() {
+                return _spilledCount.get();
+            }
+
+            @Override
+            public String[] getEndpointStats() {
+                final List<String> stats = new ArrayList<>();
+                for (final DefaultEndpointStat stat : _stats.values()) {
+                    stats.add(stat.toString());
+                }
+                return stats.toArray(EMPTY_STRS);
+            }});
+    }
+
+    @Override
+    public String[] uris(final String type) {
+        return typeStatsOf(type)._uris.clone();
     }
 
     @Override
@@ -44,22 +154,193 @@ public class DefaultEndpointSet implements EndpointSet {
         return new Transformer<Interact, Interact>() {
             @Override
             public Observable<Interact> call(final Observable<Interact> interacts) {
-                return interacts.doOnNext(new Action1<Interact>() {
+                return interacts.map(new Func1<Interact, Interact>() {
                     @Override
-                    public void call(final Interact interact) {
-                        final String[] uris = uris(spi.type());
-                        if (uris.length == 0) {
+                    public Interact call(final Interact interact) {
+                        final TypeStats typeStats = typeStatsOf(spi.type());
+                        if (typeStats._stats.length == 0) {
                             LOG.warn("no valid endpoint for service [{}]", spi.type());
                             throw new RuntimeException("no valid endpoint for service [" + spi.type() + "]");
                         }
-                        interact.uri(selectURI(uris));
+                        final DefaultEndpointStat stat = (DefaultEndpointStat)_selector.select(
+                                candidatesOf(typeStats, System.nanoTime()));
+                        interact.uri(stat.endpoint().uri());
+                        return new StatInteract(interact, DefaultEndpointSet.this, spi.type(), stat);
                     }});
             }};
     }
 
-    private String selectURI(final String[] uris) {
-        return uris[(int)Math.floor(Math.random() * uris.length)];
+    public EndpointStat[] stats(final String type) {
+        return typeStatsOf(type)._stats.clone();
+    }
+
+    private static final class TypeStats {
+        TypeStats(final Endpoint[] endpoints, final DefaultEndpointStat[] stats, final String[] uris,
+                final DefaultEndpointStat[] locals) {
+            this._endpoints = endpoints;
+            this._stats = stats;
+            this._uris = uris;
+            this._locals = locals;
+        }
+
+        final Endpoint[] _endpoints;
+        final DefaultEndpointStat[] _stats;
+        final String[] _uris;
+        //  stats of endpoints in local zone
+        final DefaultEndpointStat[] _locals;
+    }
+
+    //  stats of type's endpoints, rebuild only when endpoints of type changed
+    private TypeStats typeStatsOf(final String type) {
+        final Endpoint[] endpoints = endpointsOf(type);
+        final TypeStats cached = this._typeStats.get(type);
+        if (null != cached && (cached._endpoints == endpoints || Arrays.equals(cached._endpoints, endpoints))) {
+            return cached;
+        }
+        final DefaultEndpointStat[] stats = new DefaultEndpointStat[endpoints.length];
+        final String[] uris = new String[endpoints.length];
+        final List<DefaultEndpointStat> locals = new ArrayList<>();
+        for (int idx = 0; idx < endpoints.length; idx++) {
+            stats[idx] = statOf(endpoints[idx]);
+            uris[idx] = endpoints[idx].uri();
+            if (null != this._localZone && this._localZone.equals(zoneOf(endpoints[idx]))) {
+                locals.add(stats[idx]);
+            }
+        }
+        final TypeStats typeStats = new TypeStats(endpoints, stats, uris,
+                locals.toArray(new DefaultEndpointStat[locals.size()]));
+        this._typeStats.put(type, typeStats);
+        return typeStats;
+    }
+
+    private Endpoint[] endpointsOf(final String type) {
+        if (this._endpoints instanceof IndexedEndpoints) {
+            return ((IndexedEndpoints)this._endpoints).endpointsOf(type);
+        }
+        final List<Endpoint> endpoints = new ArrayList<>();
+        for (final Endpoint endpoint : this._endpoints) {
+            if (endpoint.type().equals(type)) {
+                endpoints.add(endpoint);
+            }
+        }
+        return endpoints.toArray(EMPTY_ENDPOINTS);
+    }
+
+    private static String zoneOf(final Endpoint endpoint) {
+        return endpoint instanceof Endpoint.Located ? ((Endpoint.Located)endpoint).zone() : null;
+    }
+
+    //  local endpoints if local zone set and local endpoints healthy & not overloaded, or else spill over to all
+    private EndpointStat[] candidatesOf(final TypeStats typeStats, final long now) {
+        if (null != this._localZone) {
+            final DefaultEndpointStat[] locals = typeStats._locals;
+            final int healthy = locals.length - ejectedOf(locals, now);
+            if (healthy > 0
+                && healthy * 100 >= this._minLocalHealthyPercent * locals.length
+                && !isOverloaded(locals, healthy, now)) {
+                this._localCount.incrementAndGet();
+                return availableOf(locals, now);
+            }
+            this._spilledCount.incrementAndGet();
+        }
+        return availableOf(typeStats._stats, now);
+    }
+
+    private boolean isOverloaded(final DefaultEndpointStat[] stats, final int healthy, final long now) {
+        if (this._maxLocalInflightPerEndpoint <= 0) {
+            return false;
+        }
+        long inflight = 0;
+        for (final DefaultEndpointStat stat : stats) {
+            if (!stat.isEjected(now)) {
+                inflight += stat.inflight();
+            }
+        }
+        return inflight >= (long)this._maxLocalInflightPerEndpoint * healthy;
+    }
+
+    private static int ejectedOf(final EndpointStat[] stats, final long now) {
+        int ejected = 0;
+        for (final EndpointStat stat : stats) {
+            if (((DefaultEndpointStat)stat).isEjected(now)) {
+                ejected++;
+            }
+        }
+        return ejected;
+    }
+
+    //  exclude ejected endpoints, or all of them if every one ejected
+    private static EndpointStat[] availableOf(final EndpointStat[] stats, final long now) {
+        final int ejected = ejectedOf(stats, now);
+        if (0 == ejected || ejected == stats.length) {
+            return stats;
+        }
+        final EndpointStat[] available = new EndpointStat[stats.length - ejected];
+        int idx = 0;
+        for (final EndpointStat stat : stats) {
+            if (!((DefaultEndpointStat)stat).isEjected(now)) {
+                available[idx++] = stat;
+            }
+        }
+        return available;
+    }
+
+    void onResult(final String type, final DefaultEndpointStat stat, final boolean success) {
+        final long now = System.nanoTime();
+        stat.onResult(success, now, this._intervalNanos);
+        if (!success
+            && !stat.isEjected(now)
+            && stat.isOutlier(this._consecutiveFailures, this._failureRatePercent, this._minRequestVolume)) {
+            tryEject(type, stat, now);
+        }
+    }
+
+    private synchronized void tryEject(final String type, final DefaultEndpointStat stat, final long now) {
+        final EndpointStat[] stats = typeStatsOf(type)._stats;
+        final int ejected = ejectedOf(stats, now);
+        final int maxEjected = stats.length > 1 ? Math.max(stats.length * this._maxEjectionPercent / 100, 1) : 0;
+        if (ejected >= maxEjected) {
+            LOG.warn("endpoint {} for service [{}] is outlier, but {} of {} endpoints ejected already, keep it",
+                    stat, type, ejected, stats.length);
+            return;
+        }
+        final long duration = stat.eject(now, this._baseEjectionNanos, this._maxEjectionNanos);
+        this._ejectionCount.incrementAndGet();
+        LOG.warn("eject outlier endpoint {} for service [{}] for {} ms",
+                stat, type, TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+
+    //  stat shared by endpoints with same uri
+    private DefaultEndpointStat statOf(final Endpoint endpoint) {
+        final DefaultEndpointStat stat = this._stats.get(endpoint.uri());
+        if (null != stat) {
+            if (stat.endpoint() != endpoint) {
+                stat.setEndpoint(endpoint);
+            }
+            return stat;
+        }
+        final DefaultEndpointStat newStat = new DefaultEndpointStat(endpoint);
+        final DefaultEndpointStat old = this._stats.putIfAbsent(endpoint.uri(), newStat);
+        return null != old ? old : newStat;
     }
 
     private final Collection<Endpoint> _endpoints;
+    private final EndpointSelector _selector;
+    private final ConcurrentMap<String, DefaultEndpointStat> _stats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TypeStats> _typeStats = new ConcurrentHashMap<>();
+    private final AtomicLong _ejectionCount = new AtomicLong(0);
+    private final AtomicLong _localCount = new AtomicLong(0);
+    private final AtomicLong _spilledCount = new AtomicLong(0);
+
+    private String _mbeanSuffix;
+    private int _consecutiveFailures = 5;
+    private int _failureRatePercent = 50;
+    private int _minRequestVolume = 20;
+    private long _intervalNanos = TimeUnit.SECONDS.toNanos(10);
+    private long _baseEjectionNanos = TimeUnit.SECONDS.toNanos(30);
+    private long _maxEjectionNanos = TimeUnit.SECONDS.toNanos(300);
+    private int _maxEjectionPercent = 50;
+    private volatile String _localZone = null;
+    private int _minLocalHealthyPercent = 70;
+    private int _maxLocalInflightPerEndpoint = 0;
 }
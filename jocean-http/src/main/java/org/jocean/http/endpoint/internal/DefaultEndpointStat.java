@@ -0,0 +1,156 @@
+package org.jocean.http.endpoint.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jocean.http.endpoint.Endpoint;
+import org.jocean.http.endpoint.EndpointStat;
+
+class DefaultEndpointStat implements EndpointStat {
+
+    //  time constant of latency ewma's decay
+    private static final double _DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    //  latency sampled for failed interaction: current ewma times factor, at least min nanos
+    private static final double _FAILURE_PENALTY_FACTOR = 2.0;
+    private static final double _MIN_FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    DefaultEndpointStat(final Endpoint endpoint) {
+        this._endpoint = endpoint;
+    }
+
+    @Override
+    public Endpoint endpoint() {
+        return this._endpoint;
+    }
+
+    //  keep latest endpoint of same uri, eg: endpoint re-registered with new weight
+    void setEndpoint(final Endpoint endpoint) {
+        this._endpoint = endpoint;
+    }
+
+    @Override
+    public int inflight() {
+        return this._inflight.get();
+    }
+
+    @Override
+    public double latencyEwma() {
+        return this._ewma;
+    }
+
+    //  return start time in nanoseconds
+    long onStart() {
+        this._inflight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void onEnd() {
+        this._inflight.decrementAndGet();
+    }
+
+    //  peak-EWMA: latency higher than ewma take effect immediately, lower one decay into ewma by elapsed time
+    synchronized void onLatency(final long startNanos) {
+        final long now = System.nanoTime();
+        updateEwma(now, Math.max(now - startNanos, 0));
+    }
+
+    //  time-to-error is not latency, fail fast endpoint(eg: connection refused) must not look fastest,
+    //  so sample penalty instead, which takes effect immediately as peak
+    synchronized void onFailure(final long startNanos) {
+        final long now = System.nanoTime();
+        updateEwma(now, Math.max(Math.max(this._ewma, now - startNanos) * _FAILURE_PENALTY_FACTOR,
+                _MIN_FAILURE_PENALTY_NANOS));
+    }
+
+    private void updateEwma(final long now, final double rtt) {
+        final long elapsed = 0 != this._stamp ? Math.max(now - this._stamp, 0) : 0;
+        this._stamp = now;
+        if (rtt > this._ewma) {
+            this._ewma = rtt;
+        } else {
+            final double w = Math.exp(-elapsed / _DECAY_NANOS);
+            this._ewma = this._ewma * w + rtt * (1 - w);
+        }
+    }
+
+    @Override
+    public synchronized int consecutiveFailures() {
+        return this._consecutiveFailures;
+    }
+
+    @Override
+    public synchronized float failureRate() {
+        return this._intervalRequests > 0 ? (float)this._intervalFailures / this._intervalRequests : 0f;
+    }
+
+    @Override
+    public boolean isEjected() {
+        return isEjected(System.nanoTime());
+    }
+
+    boolean isEjected(final long now) {
+        return now - this._ejectedUntil < 0;
+    }
+
+    //  record result of interaction into counters of current interval
+    synchronized void onResult(final boolean success, final long now, final long intervalNanos) {
+        if (now - this._intervalStart >= intervalNanos) {
+            this._intervalStart = now;
+            this._intervalRequests = 0;
+            this._intervalFailures = 0;
+        }
+        this._intervalRequests++;
+        if (success) {
+            this._consecutiveFailures = 0;
+        } else {
+            this._intervalFailures++;
+            this._consecutiveFailures++;
+        }
+    }
+
+    synchronized boolean isOutlier(final int consecutiveFailures, final int failureRatePercent,
+            final int minRequestVolume) {
+        return this._consecutiveFailures >= consecutiveFailures
+            || (this._intervalRequests >= minRequestVolume
+                && this._intervalFailures * 100 >= failureRatePercent * this._intervalRequests);
+    }
+
+    //  ejection time grows exponentially from base for each ejection, until healthy longer than max
+    synchronized long eject(final long now, final long baseNanos, final long maxNanos) {
+        if (now - this._ejectedUntil > maxNanos) {
+            this._ejections = 0;
+        }
+        final long duration = Math.min(baseNanos << Math.min(this._ejections, 20), maxNanos);
+        this._ejections++;
+        this._ejectedUntil = now + duration;
+        this._consecutiveFailures = 0;
+        this._intervalStart = now;
+        this._intervalRequests = 0;
+        this._intervalFailures = 0;
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("EndpointStat [uri=").append(this._endpoint.uri())
+                .append(", inflight=").append(this._inflight.get())
+                .append(", latencyEwma=").append(this._ewma)
+                .append(", consecutiveFailures=").append(consecutiveFailures())
+                .append(", failureRate=").append(failureRate())
+                .append(", ejected=").append(isEjected()).append("]").toString();
+    }
+
+    private volatile Endpoint _endpoint;
+    private final AtomicInteger _inflight = new AtomicInteger(0);
+    private volatile double _ewma = 0.0;
+    private long _stamp = 0;
+
+    //  outlier detection, guarded by this except _ejectedUntil
+    private int _consecutiveFailures = 0;
+    private long _intervalStart = System.nanoTime();
+    private int _intervalRequests = 0;
+    private int _intervalFailures = 0;
+    private int _ejections = 0;
+    private volatile long _ejectedUntil = System.nanoTime();
+}
@@ -0,0 +1,103 @@
+package org.jocean.http.endpoint.internal;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jocean.http.endpoint.Endpoint;
+
+/**
+ * copy-on-write collection of Endpoint with immutable index: type -> Endpoint[],
+ * each add/remove build new snapshot and swap it atomically, so read (eg: select endpoint for interaction)
+ * is lock-free and allocation-free, and never see partial updated index.
+ */
+public class IndexedEndpoints extends AbstractCollection<Endpoint> {
+
+    private static final Endpoint[] EMPTY_ENDPOINTS = new Endpoint[0];
+
+    private static final class Snapshot {
+        Snapshot(final Endpoint[] all) {
+            this._all = all;
+            final Map<String, Endpoint[]> index = new HashMap<>();
+            for (final Endpoint endpoint : all) {
+                final Endpoint[] prev = index.get(endpoint.type());
+                final Endpoint[] endpoints = null != prev ? Arrays.copyOf(prev, prev.length + 1) : new Endpoint[1];
+                endpoints[endpoints.length - 1] = endpoint;
+                index.put(endpoint.type(), endpoints);
+            }
+            this._index = index;
+        }
+
+        final Endpoint[] _all;
+        final Map<String, Endpoint[]> _index;
+    }
+
+    //  endpoints of type, don't modify the returned array
+    public Endpoint[] endpointsOf(final String type) {
+        final Endpoint[] endpoints = this._snapshot._index.get(type);
+        return null != endpoints ? endpoints : EMPTY_ENDPOINTS;
+    }
+
+    @Override
+    public Iterator<Endpoint> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(this._snapshot._all)).iterator();
+    }
+
+    @Override
+    public int size() {
+        return this._snapshot._all.length;
+    }
+
+    @Override
+    public synchronized boolean add(final Endpoint endpoint) {
+        final Endpoint[] all = this._snapshot._all;
+        final Endpoint[] newAll = Arrays.copyOf(all, all.length + 1);
+        newAll[all.length] = endpoint;
+        this._snapshot = new Snapshot(newAll);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(final Object o) {
+        final Endpoint[] all = this._snapshot._all;
+        for (int idx = 0; idx < all.length; idx++) {
+            if (all[idx].equals(o)) {
+                final Endpoint[] newAll = new Endpoint[all.length - 1];
+                System.arraycopy(all, 0, newAll, 0, idx);
+                System.arraycopy(all, idx + 1, newAll, idx, all.length - idx - 1);
+                this._snapshot = new Snapshot(newAll);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean addAll(final Collection<? extends Endpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            return false;
+        }
+        final Endpoint[] all = this._snapshot._all;
+        final Endpoint[] added = endpoints.toArray(EMPTY_ENDPOINTS);
+        final Endpoint[] newAll = Arrays.copyOf(all, all.length + added.length);
+        System.arraycopy(added, 0, newAll, all.length, added.length);
+        this._snapshot = new Snapshot(newAll);
+        return true;
+    }
+
+    //  replace all endpoints at once, eg: by registry's full update
+    public synchronized void setEndpoints(final Collection<? extends Endpoint> endpoints) {
+        this._snapshot = new Snapshot(endpoints.toArray(EMPTY_ENDPOINTS));
+    }
+
+    @Override
+    public synchronized void clear() {
+        this._snapshot = new Snapshot(EMPTY_ENDPOINTS);
+    }
+
+    private volatile Snapshot _snapshot = new Snapshot(EMPTY_ENDPOINTS);
+}
@@ -0,0 +1,156 @@
+package org.jocean.http.endpoint.internal;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jocean.http.ContentEncoder;
+import org.jocean.http.Feature;
+import org.jocean.http.FullMessage;
+import org.jocean.http.Interact;
+import org.jocean.http.Interaction;
+import org.jocean.http.MessageBody;
+import org.jocean.http.client.HttpClient.HttpInitiator;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Interact which feed inflight count, response latency and result (error or 5xx as failure)
+ * of each executed Interaction to endpoint's stat
+ */
+class StatInteract implements Interact {
+
+    StatInteract(final Interact interact, final DefaultEndpointSet endpointSet, final String type,
+            final DefaultEndpointStat stat) {
+        this._interact = interact;
+        this._endpointSet = endpointSet;
+        this._type = type;
+        this._stat = stat;
+    }
+
+    @Override
+    public Interact method(final HttpMethod method) {
+        this._interact.method(method);
+        return this;
+    }
+
+    @Override
+    public Interact uri(final String uri) {
+        this._interact.uri(uri);
+        return this;
+    }
+
+    @Override
+    public Interact path(final String path) {
+        this._interact.path(path);
+        return this;
+    }
+
+    @Override
+    public Interact paramAsQuery(final String key, final String value) {
+        this._interact.paramAsQuery(key, value);
+        return this;
+    }
+
+    @Override
+    public Interact reqbean(final Object... reqbeans) {
+        this._interact.reqbean(reqbeans);
+        return this;
+    }
+
+    @Override
+    public Interact body(final Observable<? extends MessageBody> body) {
+        this._interact.body(body);
+        return this;
+    }
+
+    @Override
+    public Interact body(final Object bean, final ContentEncoder contentEncoder) {
+        this._interact.body(bean, contentEncoder);
+        return this;
+    }
+
+    @Override
+    public Interact onrequest(final Action1<Object> action) {
+        this._interact.onrequest(action);
+        return this;
+    }
+
+    @Override
+    public Interact feature(final Feature... features) {
+        this._interact.feature(features);
+        return this;
+    }
+
+    @Override
+    public Observable<? extends Interaction> execution() {
+        return this._interact.execution().map(new Func1<Interaction, Interaction>() {
+            @Override
+            public Interaction call(final Interaction interaction) {
+                return new Interaction() {
+                    @Override
+                    public HttpInitiator initiator() {
+                        return interaction.initiator();
+                    }
+
+                    @Override
+                    public Observable<? extends FullMessage<HttpResponse>> execute() {
+                        return statOf(interaction.execute());
+                    }};
+            }});
+    }
+
+    //  inflight from subscribe until response or terminated, latency and result sampled when response received,
+    //  penalty latency and failure sampled when error
+    private <T extends FullMessage<HttpResponse>> Observable<T> statOf(final Observable<T> response) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final DefaultEndpointStat stat = _stat;
+                final AtomicBoolean ended = new AtomicBoolean(false);
+                final long start = stat.onStart();
+                final Action1<Boolean> onResponse = new Action1<Boolean>() {
+                    @Override
+                    public void call(final Boolean success) {
+                        if (ended.compareAndSet(false, true)) {
+                            stat.onLatency(start);
+                            stat.onEnd();
+                            _endpointSet.onResult(_type, stat, success);
+                        }
+                    }};
+                final Action1<Throwable> onError = new Action1<Throwable>() {
+                    @Override
+                    public void call(final Throwable e) {
+                        if (ended.compareAndSet(false, true)) {
+                            stat.onFailure(start);
+                            stat.onEnd();
+                            _endpointSet.onResult(_type, stat, false);
+                        }
+                    }};
+                final Action0 onEnd = new Action0() {
+                    @Override
+                    public void call() {
+                        if (ended.compareAndSet(false, true)) {
+                            stat.onEnd();
+                        }
+                    }};
+                return response.doOnNext(new Action1<T>() {
+                    @Override
+                    public void call(final T fullmsg) {
+                        onResponse.call(fullmsg.message().status().code() < 500);
+                    }})
+                    .doOnError(onError)
+                    .doOnTerminate(onEnd)
+                    .doOnUnsubscribe(onEnd);
+            }});
+    }
+
+    private final Interact _interact;
+    private final DefaultEndpointSet _endpointSet;
+    private final String _type;
+    private final DefaultEndpointStat _stat;
+}
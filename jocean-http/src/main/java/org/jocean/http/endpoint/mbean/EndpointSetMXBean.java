@@ -0,0 +1,18 @@
+package org.jocean.http.endpoint.mbean;
+
+public interface EndpointSetMXBean {
+
+    public String getSelector();
+
+    public long getEjectionCount();
+
+    public String[] getEjectedEndpoints();
+
+    public String getLocalZone();
+
+    public long getLocalRequestCount();
+
+    public long getSpilledRequestCount();
+
+    public String[] getEndpointStats();
+}
@@ -0,0 +1,8 @@
+/**
+ * 
+ */
+/**
+ * @author isdom
+ *
+ */
+package org.jocean.http.endpoint.mbean;
\ No newline at end of file
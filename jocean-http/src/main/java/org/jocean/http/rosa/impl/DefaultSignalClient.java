@@ -2,6 +2,7 @@ package org.jocean.http.rosa.impl;
 
 import java.beans.PropertyEditor;
 import java.beans.PropertyEditorManager;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
@@ -24,6 +25,7 @@ import javax.ws.rs.core.MediaType;
 
 import org.jocean.http.Feature;
 import org.jocean.http.Feature.FeaturesAware;
+import org.jocean.http.MessageUtil;
 import org.jocean.http.PayloadCounter;
 import org.jocean.http.TransportException;
 import org.jocean.http.client.HttpClient;
@@ -50,11 +52,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.fastjson.JSON;
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
@@ -697,23 +694,7 @@ public class DefaultSignalClient implements SignalClient, BeanHolderAware {
                         if (null != consumes) {
                             final Collection<String> mimeTypes = Arrays.asList(consumes.value());
                             if (mimeTypes.contains(MediaType.APPLICATION_XML)) {
-                                final XmlMapper mapper = new XmlMapper();
-                                mapper.addHandler(new DeserializationProblemHandler() {
-                                    @Override
-                                    public boolean handleUnknownProperty(final DeserializationContext ctxt, final JsonParser p,
-                                            final JsonDeserializer<?> deserializer, final Object beanOrClass, final String propertyName)
-                                            throws IOException {
-                                        LOG.warn("UnknownProperty [{}], just skip", propertyName);
-                                        p.skipChildren();
-                                        return true;
-                                    }});
-                                try {
-                                    return (RESP)mapper.readValue(bytes, bodyType);
-                                } catch (final Exception e) {
-                                    LOG.warn("exception when parse xml, detail: {}",
-                                            ExceptionUtils.exception2detail(e));
-                                    return null;
-                                }
+                                return (RESP)MessageUtil.unserializeAsXml(new ByteArrayInputStream(bytes), bodyType);
                             }
                         }
                         // try need decode as json
@@ -4,17 +4,14 @@
 package org.jocean.http.rosa.impl.internal;
 
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 
-import javax.ws.rs.QueryParam;
-
+import org.jocean.http.BeanPlan;
 import org.jocean.http.rosa.impl.BodyBuilder;
 import org.jocean.http.rosa.impl.BodyForm;
 import org.jocean.idiom.ExceptionUtils;
-import org.jocean.idiom.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,19 +55,16 @@ class FormURLEncodedBodyBuilder implements BodyBuilder {
     }
 
     private byte[] genBodyBytes() {
-        final Field[] queryFields = 
-                ReflectUtils.getAnnotationFieldsOf(this._signalBean.getClass(), QueryParam.class);
-        if ( queryFields.length > 0 ) {
+        final BeanPlan.Param[] params = BeanPlan.of(this._signalBean.getClass()).queryParams();
+        if ( params.length > 0 ) {
             final Charset charset = CharsetUtil.UTF_8;
             final StringBuilder sb = new StringBuilder();
             String splitter = "";
-            for ( Field field : queryFields ) {
+            for ( BeanPlan.Param param : params ) {
                 try {
-                    final String paramkey = 
-                            field.getAnnotation(QueryParam.class).value();
-                    final Object value = field.get(this._signalBean);
+                    final Object value = param.get(this._signalBean);
                     sb.append(splitter);
-                    sb.append(encodeComponent(paramkey, charset));
+                    sb.append(encodeComponent(param.name(), charset));
                     sb.append('=');
                     if (value != null) {
                         sb.append(encodeComponent(value.toString(), charset));
@@ -79,7 +73,7 @@ class FormURLEncodedBodyBuilder implements BodyBuilder {
                 }
                 catch (Exception e) {
                     LOG.warn("exception when get field({})'s value, detail:{}", 
-                            field, ExceptionUtils.exception2detail(e));
+                            param, ExceptionUtils.exception2detail(e));
                 }
             }
             return sb.toString().getBytes(CharsetUtil.UTF_8);
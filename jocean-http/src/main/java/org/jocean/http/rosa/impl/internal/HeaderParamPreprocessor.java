@@ -1,14 +1,10 @@
 package org.jocean.http.rosa.impl.internal;
 
-import java.lang.reflect.Field;
-
-import javax.ws.rs.HeaderParam;
-
+import org.jocean.http.BeanPlan;
 import org.jocean.http.Feature;
 import org.jocean.http.rosa.impl.RequestChanger;
 import org.jocean.http.rosa.impl.RequestPreprocessor;
 import org.jocean.idiom.ExceptionUtils;
-import org.jocean.idiom.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,23 +22,20 @@ class HeaderParamPreprocessor implements Feature, RequestPreprocessor {
             return null;
         }
         
-        final Field[] headerFields = 
-                ReflectUtils.getAnnotationFieldsOf(signalBean.getClass(), HeaderParam.class);
-        if ( headerFields.length > 0 ) {
+        final BeanPlan.Param[] params = BeanPlan.of(signalBean.getClass()).headerParams();
+        if ( params.length > 0 ) {
             return new RequestChanger() {
                 @Override
                 public void call(final HttpRequest request) {
-                    for ( Field field : headerFields ) {
+                    for ( BeanPlan.Param param : params ) {
                         try {
-                            final Object value = field.get(signalBean);
+                            final Object value = param.get(signalBean);
                             if ( null != value ) {
-                                final String headername = 
-                                    field.getAnnotation(HeaderParam.class).value();
-                                request.headers().set(headername, value);
+                                request.headers().set(param.name(), value);
                             }
                         } catch (Exception e) {
                             LOG.warn("exception when get value from field:[{}], detail:{}",
-                                    field, ExceptionUtils.exception2detail(e));
+                                    param, ExceptionUtils.exception2detail(e));
                         }
                     }
                 }
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.jocean.http.ContentUtil;
 import org.jocean.http.Feature;
 import org.jocean.http.Feature.FeaturesAware;
 import org.jocean.http.rosa.impl.BodyBuilder;
@@ -23,7 +24,6 @@ import com.alibaba.fastjson.JSONObject;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.DefaultByteBufHolder;
-import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 import rx.functions.Action2;
 
@@ -73,8 +73,9 @@ class JSONBodyBuilder implements BodyBuilder, FeaturesAware {
             }
         }
         
-        final byte[] jsonBytes = genJSONBytes();
-        return new AbstractBodyForm(Unpooled.wrappedBuffer(jsonBytes)) {
+        //  serialize into pooled direct buf, which released after assembled request by caller
+        final ByteBuf json = ContentUtil.encodeAsByteBuf(jsonSource(), ContentUtil.TOJSON.encoder());
+        return new AbstractBodyForm(json) {
             @Override
             public String contentType() {
                 return "application/json; charset=UTF-8";
@@ -82,16 +83,15 @@ class JSONBodyBuilder implements BodyBuilder, FeaturesAware {
 
             @Override
             public int length() {
-                return jsonBytes.length;
+                return content().readableBytes();
             }};
     }
 
-    private byte[] genJSONBytes() {
+    private Object jsonSource() {
         if (this._jsons.isEmpty()) {
-            return JSON.toJSONBytes(this._signalBean);
+            return this._signalBean;
         } else {
-            return JSON.toJSONBytes(
-                    mergeWithSources(JSON.toJSON(this._signalBean), this._jsons));
+            return mergeWithSources(JSON.toJSON(this._signalBean), this._jsons);
         }
     }
 
@@ -0,0 +1,173 @@
+package org.jocean.http.rosa.impl.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.PathParam;
+
+import org.jocean.idiom.ExceptionUtils;
+import org.jocean.idiom.ReflectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * path with {param} placeholders compiled for bean class: literal segments and @PathParam
+ * field/method accessors, expand by appending segments and String.valueOf(param) into StringBuilder.
+ * unknown placeholder is erased, same as PropertyPlaceholderHelper with default empty value before.
+ */
+final class PathTemplate {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PathTemplate.class);
+
+    private static final MethodType _GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ConcurrentMap<Class<?>, BeanTemplates> _BEANS = new ConcurrentHashMap<>();
+
+    static PathTemplate of(final Class<?> cls, final String template) {
+        BeanTemplates templates = _BEANS.get(cls);
+        if (null == templates) {
+            final BeanTemplates newTemplates = new BeanTemplates(cls);
+            final BeanTemplates old = _BEANS.putIfAbsent(cls, newTemplates);
+            templates = null != old ? old : newTemplates;
+        }
+        return templates.templateOf(template);
+    }
+
+    private static final class BeanTemplates {
+        BeanTemplates(final Class<?> cls) {
+            this._getters = gettersOf(cls);
+        }
+
+        PathTemplate templateOf(final String template) {
+            final PathTemplate compiled = this._templates.get(template);
+            if (null != compiled) {
+                return compiled;
+            }
+            final PathTemplate newCompiled = compile(template, this._getters);
+            final PathTemplate old = this._templates.putIfAbsent(template, newCompiled);
+            return null != old ? old : newCompiled;
+        }
+
+        private final Map<String, Getter> _getters;
+        private final ConcurrentMap<String, PathTemplate> _templates = new ConcurrentHashMap<>();
+    }
+
+    private static final class Getter {
+        Getter(final String member, final MethodHandle handle) {
+            this._member = member;
+            this._handle = handle;
+        }
+
+        final String _member;
+        final MethodHandle _handle;
+    }
+
+    private static Map<String, Getter> gettersOf(final Class<?> cls) {
+        final Map<String, Getter> getters = new HashMap<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        //  methods first, so @PathParam field with same name override it, as resolver before
+        final Method[] methods = ReflectUtils.getAnnotationMethodsOf(cls, PathParam.class);
+        if (null != methods) {
+            for (final Method method : methods) {
+                if (method.getParameterTypes().length == 0
+                    && !method.getReturnType().equals(void.class)) {
+                    try {
+                        method.setAccessible(true);
+                        getters.put(method.getAnnotation(PathParam.class).value(),
+                                new Getter(method.getName(), lookup.unreflect(method).asType(_GETTER_TYPE)));
+                    } catch (final Exception e) {
+                        LOG.warn("class({}).{} can't be access as PathParam, just ignore, detail: {}",
+                                cls, method.getName(), ExceptionUtils.exception2detail(e));
+                    }
+                }
+                else {
+                    LOG.warn("class({}).{} can't be invoke as PathParam, just ignore",
+                            cls, method.getName());
+                }
+            }
+        }
+        final Field[] fields = ReflectUtils.getAnnotationFieldsOf(cls, PathParam.class);
+        if (null != fields) {
+            for (final Field field : fields) {
+                try {
+                    field.setAccessible(true);
+                    getters.put(field.getAnnotation(PathParam.class).value(),
+                            new Getter(field.getName(), lookup.unreflectGetter(field).asType(_GETTER_TYPE)));
+                } catch (final Exception e) {
+                    LOG.warn("class({}).{} can't be access as PathParam, just ignore, detail: {}",
+                            cls, field.getName(), ExceptionUtils.exception2detail(e));
+                }
+            }
+        }
+        return getters;
+    }
+
+    //  split template by {name}, unclosed '{' remains as literal
+    private static PathTemplate compile(final String template, final Map<String, Getter> getters) {
+        final List<String> literals = new ArrayList<>();
+        final List<Getter> params = new ArrayList<>();
+        int pos = 0;
+        for (;;) {
+            final int begin = template.indexOf('{', pos);
+            final int end = begin >= 0 ? template.indexOf('}', begin + 1) : -1;
+            if (end < 0) {
+                literals.add(template.substring(pos));
+                break;
+            }
+            literals.add(template.substring(pos, begin));
+            //  null getter for unknown placeholder
+            params.add(getters.get(template.substring(begin + 1, end)));
+            pos = end + 1;
+        }
+        return new PathTemplate(literals.toArray(new String[0]), params.toArray(new Getter[0]));
+    }
+
+    private PathTemplate(final String[] literals, final Getter[] params) {
+        this._literals = literals;
+        this._params = params;
+        int length = 0;
+        for (final String literal : literals) {
+            length += literal.length();
+        }
+        this._literalsLength = length;
+    }
+
+    boolean hasPlaceholder() {
+        return this._params.length > 0;
+    }
+
+    //  estimated length of expanded path, for StringBuilder's initial capacity
+    int sizeHint() {
+        return this._literalsLength + this._params.length * 16;
+    }
+
+    void expand(final Object bean, final StringBuilder sb) {
+        sb.append(this._literals[0]);
+        for (int idx = 0; idx < this._params.length; idx++) {
+            final Getter getter = this._params[idx];
+            if (null != getter) {
+                try {
+                    sb.append(String.valueOf((Object)getter._handle.invokeExact(bean)));
+                } catch (final Throwable e) {
+                    LOG.error("exception when get value for ({}).{}, detail: {}",
+                            bean, getter._member, ExceptionUtils.exception2detail(e));
+                }
+            }
+            sb.append(this._literals[idx + 1]);
+        }
+    }
+
+    private final String[] _literals;
+    private final Getter[] _params;
+    private final int _literalsLength;
+}
@@ -1,15 +1,10 @@
 package org.jocean.http.rosa.impl.internal;
 
-import java.lang.reflect.Field;
-
-import javax.ws.rs.QueryParam;
-
+import org.jocean.http.BeanPlan;
 import org.jocean.http.Feature;
 import org.jocean.http.rosa.impl.RequestChanger;
 import org.jocean.http.rosa.impl.RequestPreprocessor;
-import org.jocean.http.util.Nettys;
 import org.jocean.idiom.ExceptionUtils;
-import org.jocean.idiom.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,9 +24,8 @@ class QueryParamPreprocessor implements Feature, RequestPreprocessor {
             return null;
         }
         
-        final Field[] queryFields = 
-                ReflectUtils.getAnnotationFieldsOf(signalBean.getClass(), QueryParam.class);
-        if ( queryFields.length > 0 ) {
+        final BeanPlan.Param[] params = BeanPlan.of(signalBean.getClass()).queryParams();
+        if ( params.length > 0 ) {
             return new RequestChanger() {
                 @Override
                 public void call(final HttpRequest request) {
@@ -40,20 +34,17 @@ class QueryParamPreprocessor implements Feature, RequestPreprocessor {
                     //      assemble query parameters
                     final boolean isGetMethod = request.method().equals(HttpMethod.GET);
                     final QueryStringEncoder encoder = new QueryStringEncoder(request.uri());
-                    for ( Field field : queryFields ) {
-                        if (isGetMethod ||
-                           Nettys.isFieldAnnotatedOfHttpMethod(field, request.method())) {
+                    for ( BeanPlan.Param param : params ) {
+                        if (isGetMethod || param.isAnnotatedOf(request.method())) {
                             try {
-                                final Object value = field.get(signalBean);
+                                final Object value = param.get(signalBean);
                                 if ( null != value ) {
-                                    final String paramkey = 
-                                            field.getAnnotation(QueryParam.class).value();
-                                    encoder.addParam(paramkey, String.valueOf(value));
+                                    encoder.addParam(param.name(), String.valueOf(value));
                                 }
                             }
                             catch (Exception e) {
                                 LOG.warn("exception when get field({})'s value, detail:{}", 
-                                        field, ExceptionUtils.exception2detail(e));
+                                        param, ExceptionUtils.exception2detail(e));
                             }
                         }
                     }
@@ -3,18 +3,12 @@
  */
 package org.jocean.http.rosa.impl.internal;
 
+import org.jocean.http.ContentUtil;
 import org.jocean.http.rosa.impl.BodyBuilder;
 import org.jocean.http.rosa.impl.BodyForm;
-import org.jocean.idiom.ExceptionUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.DefaultByteBufHolder;
-import io.netty.buffer.Unpooled;
 
 /**
  * @author isdom
@@ -22,9 +16,6 @@ import io.netty.buffer.Unpooled;
  */
 class XMLBodyBuilder implements BodyBuilder {
 
-    private static final Logger LOG =
-            LoggerFactory.getLogger(XMLBodyBuilder.class);
-    
     public XMLBodyBuilder(final Object signalBean) {
         this._signalBean = signalBean;
     }
@@ -37,8 +28,9 @@ class XMLBodyBuilder implements BodyBuilder {
             }
         }
         
-        final byte[] xmlBytes = genXMLBytes();
-        return new AbstractBodyForm(Unpooled.wrappedBuffer(xmlBytes)) {
+        //  serialize into pooled direct buf by shared XmlMapper, which released after assembled request by caller
+        final ByteBuf xml = ContentUtil.encodeAsByteBuf(this._signalBean, ContentUtil.TOXML.encoder());
+        return new AbstractBodyForm(xml) {
             @Override
             public String contentType() {
                 return "application/xml; charset=UTF-8";
@@ -46,20 +38,10 @@ class XMLBodyBuilder implements BodyBuilder {
 
             @Override
             public int length() {
-                return xmlBytes.length;
+                return content().readableBytes();
             }};
     }
 
-    private byte[] genXMLBytes() {
-        try {
-            final XmlMapper mapper = new XmlMapper();
-            return mapper.writeValueAsBytes(this._signalBean);
-        } catch (JsonProcessingException e) {
-            LOG.warn("exception when convert {} to xml, detail: {}", this._signalBean, ExceptionUtils.exception2detail(e));
-            return new byte[0];
-        }
-    }
-
     @Override
     public int ordinal() {
         return 100;
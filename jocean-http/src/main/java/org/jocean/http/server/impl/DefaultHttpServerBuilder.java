@@ -22,6 +22,7 @@ import org.jocean.http.util.HttpHandlers;
 import org.jocean.http.util.Nettys;
 import org.jocean.http.util.Nettys.ServerChannelAware;
 import org.jocean.http.util.RxNettys;
+import org.jocean.http.util.TransportType;
 import org.jocean.idiom.ExceptionUtils;
 import org.jocean.idiom.InterfaceUtils;
 import org.jocean.idiom.JOArrays;
@@ -34,11 +35,14 @@ import org.slf4j.LoggerFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ServerChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.util.AttributeKey;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
 import rx.Observable;
@@ -82,6 +86,21 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
                 return _workThreadCount;
             }
 
+            @Override
+            public int getAcceptorCount() {
+                return DefaultHttpServerBuilder.this.getAcceptorCount();
+            }
+
+            @Override
+            public long[] getAcceptedCountPerAcceptor() {
+                return DefaultHttpServerBuilder.this.getAcceptedCountPerAcceptor();
+            }
+
+            @Override
+            public String getTransport() {
+                return null != _transport ? _transport.name() : "CUSTOM";
+            }
+
             @Override
             public int getCurrentInboundMemoryInBytes() {
                 return _currentInboundMemory.get();
@@ -127,6 +146,46 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
             }});
     }
 
+    //  SO_REUSEPORT, only for EPOLL transport
+    public void setReusePort(final boolean reusePort) {
+        this._reusePort = reusePort;
+    }
+
+    //  TCP_FASTOPEN pending SYN queue length, only for EPOLL transport, 0 means disabled
+    public void setTcpFastOpen(final int tcpFastOpen) {
+        this._tcpFastOpen = tcpFastOpen;
+    }
+
+    //  TCP_QUICKACK for accepted channels, only for EPOLL transport
+    public void setTcpQuickAck(final boolean tcpQuickAck) {
+        this._tcpQuickAck = tcpQuickAck;
+    }
+
+    //  bind acceptorCount server channels on same address with SO_REUSEPORT (EPOLL transport only),
+    //  acceptors registered to accept event loops by round-robin,
+    //  so processThreadNumberForAccept should not less than acceptorCount
+    public void setAcceptorCount(final int acceptorCount) {
+        this._acceptorCount = acceptorCount;
+    }
+
+    //  bound acceptors (server channels) count
+    public int getAcceptorCount() {
+        return this._acceptors.size();
+    }
+
+    public long[] getAcceptedCountPerAcceptor() {
+        final Channel[] acceptors = this._acceptors.toArray(new Channel[0]);
+        final long[] counts = new long[acceptors.length];
+        for (int idx = 0; idx < acceptors.length; idx++) {
+            counts[idx] = acceptedCounterOf(acceptors[idx]).get();
+        }
+        return counts;
+    }
+
+    public TransportType getTransport() {
+        return this._transport;
+    }
+
     public int getInboundBlockSize() {
         return this._inboundBlockSize;
     }
@@ -190,10 +249,14 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
             public void call(final Subscriber<? super HttpTrade> subscriber) {
                 if (!subscriber.isUnsubscribed()) {
                     final ServerBootstrap bootstrap = _creator.newBootstrap();
+                    applyNativeOptions(bootstrap);
                     final List<Channel> awaitChannels = new CopyOnWriteArrayList<>();
                     bootstrap.childHandler(new Initializer() {
                         @Override
                         protected void initChannel(final Channel channel) throws Exception {
+                            if (null != channel.parent()) {
+                                acceptedCounterOf(channel.parent()).incrementAndGet();
+                            }
                             channel.config().setAutoRead(false);
                             if (LOG.isDebugEnabled()) {
                                 LOG.debug("dump inbound channel({})'s config: \n{}",
@@ -220,13 +283,27 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
                                     }
                                 }
                             }
-                            Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTPSERVER);
-                            awaitInboundRequest(channel, subscriber, awaitChannels);
+                            if (isHttp2Enabled(applyFeatures)) {
+                                awaitProtocolDetected(channel, subscriber, awaitChannels);
+                            } else {
+                                Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTPSERVER);
+                                awaitInboundRequest(channel, subscriber, awaitChannels);
+                            }
                         }});
-                    final ChannelFuture future = bootstrap.bind(localAddress);
                     try {
-                        future.sync();
-                        subscriber.add(RxNettys.subscriptionForCloseChannel(future.channel()));
+                        final int acceptorCount = acceptorCount();
+                        Channel firstServerChannel = null;
+                        //  more than one acceptor: bind same address with SO_REUSEPORT,
+                        //  each server channel registered to next accept event loop
+                        for (int idx = 0; idx < acceptorCount; idx++) {
+                            final ChannelFuture future = bootstrap.bind(localAddress);
+                            future.sync();
+                            subscriber.add(RxNettys.subscriptionForCloseChannel(future.channel()));
+                            addToAcceptors(future.channel());
+                            if (null == firstServerChannel) {
+                                firstServerChannel = future.channel();
+                            }
+                        }
                         subscriber.add(Subscriptions.create(new Action0() {
                             @Override
                             public void call() {
@@ -242,7 +319,7 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
                         if (null != features) {
                             final ServerChannelAware serverChannelAware = serverChannelAwareOf(features);
                             if (null != serverChannelAware) {
-                                serverChannelAware.setServerChannel((ServerChannel)future.channel());
+                                serverChannelAware.setServerChannel((ServerChannel)firstServerChannel);
                             }
                         }
                     } catch (final Exception e) {
@@ -253,6 +330,103 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
             ;
     }
 
+    private int acceptorCount() {
+        if (this._acceptorCount > 1 && TransportType.EPOLL != this._transport) {
+            LOG.warn("multi acceptors need SO_REUSEPORT supported by EPOLL transport, but current transport is {}, use single acceptor.",
+                    this._transport);
+            return 1;
+        }
+        return Math.max(this._acceptorCount, 1);
+    }
+
+    private void addToAcceptors(final Channel serverChannel) {
+        acceptedCounterOf(serverChannel);
+        this._acceptors.add(serverChannel);
+        serverChannel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture future) throws Exception {
+                _acceptors.remove(serverChannel);
+            }});
+        LOG.info("acceptor({}) bound on event loop({}).", serverChannel, serverChannel.eventLoop());
+    }
+
+    private static AtomicLong acceptedCounterOf(final Channel serverChannel) {
+        final AtomicLong counter = serverChannel.attr(ACCEPTED_COUNT_ATTR).get();
+        if (null != counter) {
+            return counter;
+        }
+        final AtomicLong newCounter = new AtomicLong(0);
+        final AtomicLong previous = serverChannel.attr(ACCEPTED_COUNT_ATTR).setIfAbsent(newCounter);
+        return null != previous ? previous : newCounter;
+    }
+
+    private void applyNativeOptions(final ServerBootstrap bootstrap) {
+        if (TransportType.EPOLL == this._transport) {
+            if (this._reusePort || this._acceptorCount > 1) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            if (this._tcpFastOpen > 0) {
+                bootstrap.option(EpollChannelOption.TCP_FASTOPEN, this._tcpFastOpen);
+            }
+            if (this._tcpQuickAck) {
+                bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+            }
+        } else if (this._reusePort || this._tcpFastOpen > 0 || this._tcpQuickAck) {
+            LOG.warn("SO_REUSEPORT/TCP_FASTOPEN/TCP_QUICKACK only supported by EPOLL transport, but current transport is {}, just ignore.",
+                    this._transport);
+        }
+    }
+
+    private void awaitProtocolDetected(
+            final Channel channel,
+            final Subscriber<? super HttpTrade> subscriber,
+            final List<Channel> awaitChannels) {
+        awaitChannels.add(channel);
+        Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTP2SERVER_PREFACE,
+            new Action1<Boolean>() {
+                @Override
+                public void call(final Boolean isHttp2) {
+                    if (isHttp2) {
+                        //  keep h2 connection in awaitChannels until closed, so unsubscribe will close it
+                        channel.closeFuture().addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(final ChannelFuture future) throws Exception {
+                                awaitChannels.remove(channel);
+                            }});
+                        Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTP2SERVER,
+                                streamInitializer(subscriber, awaitChannels));
+                        //  connection keep reading, each stream's inbound is limited by HTTP/2 flow control,
+                        //  enable autoRead after preface detector removed, so the read bytes passed to HTTP2SERVER in order
+                        channel.eventLoop().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                channel.config().setAutoRead(true);
+                            }});
+                    } else {
+                        awaitChannels.remove(channel);
+                        Nettys.applyHandler(channel.pipeline(), HttpHandlers.HTTPSERVER);
+                        //  first request has been read by preface detector, so start trade now,
+                        //  and the read bytes will be passed to HTTPSERVER after detector removed
+                        onInboundRequest(channel, subscriber, awaitChannels);
+                    }
+                }});
+        channel.read();
+    }
+
+    //  each HTTP/2 stream as one HttpTrade: stream channel only consume (and send WINDOW_UPDATE)
+    //  when trade's ReadPolicy read it, and stream channel's writability follow stream's send window
+    private ChannelHandler streamInitializer(
+            final Subscriber<? super HttpTrade> subscriber,
+            final List<Channel> awaitChannels) {
+        return new Initializer() {
+            @Override
+            protected void initChannel(final Channel stream) throws Exception {
+                stream.config().setAutoRead(false);
+                Nettys.applyHandler(stream.pipeline(), HttpHandlers.HTTP2SERVER_STREAM);
+                awaitInboundRequest(stream, subscriber, awaitChannels);
+            }};
+    }
+
     private void awaitInboundRequest(
             final Channel channel,
             final Subscriber<? super HttpTrade> subscriber,
@@ -263,29 +437,36 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
                 @Override
                 public void call() {
                     awaitChannels.remove(channel);
-                    if (!subscriber.isUnsubscribed()) {
-                        final HttpTrade trade = httpTradeOf(channel,
-                                doRecycleChannel(channel, subscriber, awaitChannels),
-                                new Action1<HttpTrade>() {
-                                    @Override
-                                    public void call(final HttpTrade t) {
-                                        _numCompletedTrades.incrementAndGet();
-                                    }}
-                                );
-                        if (trade.isActive()) {
-                            subscriber.onNext(trade);
-                        } else {
-                            LOG.info("HttpTrade({}) has unactived, so ignore.", trade);
-                        }
-                    } else {
-                        LOG.warn("HttpTrade Subscriber {} has unsubscribed, so close channel({})",
-                                subscriber, channel);
-                        channel.close();
-                    }
+                    onInboundRequest(channel, subscriber, awaitChannels);
                 }});
         channel.read();
     }
 
+    private void onInboundRequest(
+            final Channel channel,
+            final Subscriber<? super HttpTrade> subscriber,
+            final List<Channel> awaitChannels) {
+        if (!subscriber.isUnsubscribed()) {
+            final HttpTrade trade = httpTradeOf(channel,
+                    doRecycleChannel(channel, subscriber, awaitChannels),
+                    new Action1<HttpTrade>() {
+                        @Override
+                        public void call(final HttpTrade t) {
+                            _numCompletedTrades.incrementAndGet();
+                        }}
+                    );
+            if (trade.isActive()) {
+                subscriber.onNext(trade);
+            } else {
+                LOG.info("HttpTrade({}) has unactived, so ignore.", trade);
+            }
+        } else {
+            LOG.warn("HttpTrade Subscriber {} has unsubscribed, so close channel({})",
+                    subscriber, channel);
+            channel.close();
+        }
+    }
+
     private void updateCurrentInboundMemory(final int delta) {
         final int current = this._currentInboundMemory.addAndGet(delta);
         if (delta > 0) {
@@ -348,7 +529,10 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
             public void call(final HttpTrade trade) {
                 removeFromTrades(trade);
                 final DefaultHttpTrade defaultHttpTrade = (DefaultHttpTrade)trade;
-                if (channel.isActive()
+                if (channel instanceof Http2StreamChannel) {
+                    //  one trade per stream
+                    channel.close();
+                } else if (channel.isActive()
                     && !defaultHttpTrade.inTransacting()
                     && defaultHttpTrade.isKeepAlive()
                     && !subscriber.isUnsubscribed()) {
@@ -374,16 +558,35 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
             final int processThreadNumberForAccept,
             final int processThreadNumberForWork,
             final Feature... defaultFeatures) {
+        this(processThreadNumberForAccept, processThreadNumberForWork, TransportType.NIO, defaultFeatures);
+    }
+
+    //  transport fallback to NIO when native transport unavailable
+    public DefaultHttpServerBuilder(
+            final int processThreadNumberForAccept,
+            final int processThreadNumberForWork,
+            final TransportType transport,
+            final Feature... defaultFeatures) {
+        this(TransportType.select(transport), processThreadNumberForAccept, processThreadNumberForWork, defaultFeatures);
+    }
+
+    private DefaultHttpServerBuilder(
+            final TransportType transport,
+            final int processThreadNumberForAccept,
+            final int processThreadNumberForWork,
+            final Feature... defaultFeatures) {
         this(new AbstractBootstrapCreator(
-                new NioEventLoopGroup(processThreadNumberForAccept),
-                new NioEventLoopGroup(processThreadNumberForWork)) {
+                transport.newEventLoopGroup(processThreadNumberForAccept),
+                transport.newEventLoopGroup(processThreadNumberForWork)) {
             @Override
             protected void initializeBootstrap(final ServerBootstrap bootstrap) {
                 bootstrap.option(ChannelOption.SO_BACKLOG, 1024);
-                bootstrap.channel(NioServerSocketChannel.class);
+                bootstrap.channel(transport.serverChannelType());
             }}, defaultFeatures);
+        this._transport = transport;
         this._acceptThreadCount = processThreadNumberForAccept;
         this._workThreadCount = processThreadNumberForWork;
+        LOG.info("DefaultHttpServerBuilder using transport {}", transport);
     }
 
     public DefaultHttpServerBuilder(
@@ -402,6 +605,15 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
         return null != featuresBuilder ? featuresBuilder.call() : null;
     }
 
+    private static boolean isHttp2Enabled(final Feature[] features) {
+        for (final Feature feature : features) {
+            if (Feature.ENABLE_HTTP2 == feature) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static ServerChannelAware serverChannelAwareOf(
             final Feature[] applyFeatures) {
         final ServerChannelAware serverChannelAware =
@@ -427,6 +639,15 @@ public class DefaultHttpServerBuilder implements HttpServerBuilder, MBeanRegiste
     private int _acceptThreadCount = 0;
     private int _workThreadCount = 0;
 
+    //  null means transport decided by custom BootstrapCreator
+    private TransportType _transport = null;
+    private int _acceptorCount = 1;
+    private final List<Channel> _acceptors = new CopyOnWriteArrayList<>();
+    private static final AttributeKey<AtomicLong> ACCEPTED_COUNT_ATTR = AttributeKey.valueOf("__ACCEPTED_COUNT");
+    private boolean _reusePort = false;
+    private int _tcpFastOpen = 0;
+    private boolean _tcpQuickAck = false;
+
     static {
         _APPLY_BUILDER = new Feature2Handler();
         _APPLY_BUILDER.register(Feature.ENABLE_LOGGING.getClass(), HttpHandlers.LOGGING);
@@ -21,4 +21,10 @@ public interface HttpServerMXBean {
     public int getAcceptThreadCount();
     
     public int getWorkThreadCount();
+    
+    public String getTransport();
+    
+    public int getAcceptorCount();
+    
+    public long[] getAcceptedCountPerAcceptor();
 }
@@ -1,17 +1,27 @@
 package org.jocean.http.util;
 
+import java.util.List;
+
 import org.jocean.idiom.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 import io.netty.handler.stream.ChunkedWriteHandler;
@@ -61,6 +71,83 @@ class HttpFuncs {
             return new HttpServerCodec();
         }};
         
+    //  stream initiated by server (eg: server push) is not supported, just close it
+    private static final ChannelHandler CLOSE_INBOUND_STREAM = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel stream) throws Exception {
+            LOG.warn("inbound stream({}) initiated by server not supported, close it.", stream);
+            stream.close();
+        }};
+
+    static final FuncN<ChannelHandler> HTTP2CLIENT_CODEC_FUNCN = new FuncN<ChannelHandler>() {
+        @Override
+        public ChannelHandler call(final Object... args) {
+            return Http2MultiplexCodecBuilder.forClient(CLOSE_INBOUND_STREAM)
+                    .initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+                    .build();
+        }};
+
+    static final FuncN<ChannelHandler> HTTP2CLIENT_STREAM_CODEC_FUNCN = new FuncN<ChannelHandler>() {
+        @Override
+        public ChannelHandler call(final Object... args) {
+            return new Http2StreamFrameToHttpObjectCodec(false);
+        }};
+
+    //  args[0]: ChannelHandler as initializer for each inbound stream
+    static final FuncN<ChannelHandler> HTTP2SERVER_CODEC_FUNCN = new FuncN<ChannelHandler>() {
+        @Override
+        public ChannelHandler call(final Object... args) {
+            //  server MUST NOT send SETTINGS_ENABLE_PUSH, and never push
+            return Http2MultiplexCodecBuilder.forServer((ChannelHandler)args[0]).build();
+        }};
+
+    static final FuncN<ChannelHandler> HTTP2SERVER_STREAM_CODEC_FUNCN = new FuncN<ChannelHandler>() {
+        @Override
+        public ChannelHandler call(final Object... args) {
+            return new Http2StreamFrameToHttpObjectCodec(true);
+        }};
+
+    private static final ByteBuf HTTP2_PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+
+    //  detect HTTP/2 connection preface (h2 after ALPN or h2c with prior knowledge),
+    //  onDetected called with true for HTTP/2, false for HTTP/1.x, then remove self and
+    //  pass all received bytes to handlers installed by onDetected
+    static final Func1<Action1<Boolean>, ChannelHandler> HTTP2SERVER_PREFACE_FUNC1 =
+            new Func1<Action1<Boolean>, ChannelHandler>() {
+        @Override
+        public ChannelHandler call(final Action1<Boolean> onDetected) {
+            return new ByteToMessageDecoder() {
+                @Override
+                protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out)
+                        throws Exception {
+                    final int prefaceSize = HTTP2_PREFACE.readableBytes();
+                    final int size = Math.min(in.readableBytes(), prefaceSize);
+                    if (ByteBufUtil.equals(HTTP2_PREFACE, HTTP2_PREFACE.readerIndex(), in, in.readerIndex(), size)) {
+                        if (size < prefaceSize) {
+                            //  wait for more bytes
+                            return;
+                        }
+                        detected(ctx, true);
+                    } else {
+                        detected(ctx, false);
+                    }
+                }
+
+                private void detected(final ChannelHandlerContext ctx, final boolean isHttp2) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("HTTP2SERVER_PREFACE_FUNC1: channel({}) detected as {}",
+                                ctx.channel(), isHttp2 ? "HTTP/2" : "HTTP/1.x");
+                    }
+                    try {
+                        onDetected.call(isHttp2);
+                    } finally {
+                        ctx.pipeline().remove(this);
+                    }
+                }
+            };
+        }
+    };
+
     static final FuncN<ChannelHandler> CONTENT_COMPRESSOR_FUNCN = new FuncN<ChannelHandler>() {
         @Override
         public ChannelHandler call(final Object... args) {
@@ -16,8 +16,13 @@ public enum HttpHandlers implements HandlerPrototype {
     SSL(Functions.fromFunc(HttpFuncs.SSL_FUNC2)),
     SSLNOTIFY(Functions.fromFunc(HttpFuncs.SSLNOTIFY_FUNC2)),
     LOGGING_OVER_SSL(RxFunctions.<ChannelHandler>fromConstant(new LoggingHandler())),
+    HTTP2SERVER_PREFACE(Functions.fromFunc(HttpFuncs.HTTP2SERVER_PREFACE_FUNC1)),
     HTTPCLIENT(HttpFuncs.HTTPCLIENT_CODEC_FUNCN),
     HTTPSERVER(HttpFuncs.HTTPSERVER_CODEC_FUNCN),
+    HTTP2CLIENT(HttpFuncs.HTTP2CLIENT_CODEC_FUNCN),
+    HTTP2CLIENT_STREAM(HttpFuncs.HTTP2CLIENT_STREAM_CODEC_FUNCN),
+    HTTP2SERVER(HttpFuncs.HTTP2SERVER_CODEC_FUNCN),
+    HTTP2SERVER_STREAM(HttpFuncs.HTTP2SERVER_STREAM_CODEC_FUNCN),
     CONTENT_DECOMPRESSOR(HttpFuncs.CONTENT_DECOMPRESSOR_FUNCN),
     CONTENT_COMPRESSOR(HttpFuncs.CONTENT_COMPRESSOR_FUNCN),
     CHUNKED_WRITER(HttpFuncs.CHUNKED_WRITER_FUNCN),
@@ -6,10 +6,8 @@ import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.net.SocketAddress;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Queue;
 
 import org.jocean.http.Feature;
@@ -111,20 +109,24 @@ public class Nettys {
             final ChannelHandler handler,
             final ToOrdinal toOrdinal) {
         final int toInsertOrdinal = toOrdinal.call(name, handler);
-        final Iterator<Entry<String,ChannelHandler>> itr = pipeline.iterator();
-        while (itr.hasNext()) {
-            final Entry<String,ChannelHandler> entry = itr.next();
+        //  names() instead of iterator(): avoid build LinkedHashMap of whole pipeline for each insert
+        for (final String entryName : pipeline.names()) {
+            final ChannelHandler entryHandler = pipeline.get(entryName);
+            if (null == entryHandler) {
+                //  not handler's name (eg: tail context), or removed
+                continue;
+            }
             try {
-                final int order = toOrdinal.call(entry.getKey(), entry.getValue())
+                final int order = toOrdinal.call(entryName, entryHandler)
                         - toInsertOrdinal;
                 if (order==0) {
                     //  order equals, same ordered handler already added,
                     //  so replaced by new handler
                     LOG.warn("insertHandler: channel ({}) handler order({}) exist, old handler {}/{} will be replace by new handler {}/{}.",
                             pipeline.channel(), toInsertOrdinal,
-                            entry.getKey(), entry.getValue(),
+                            entryName, entryHandler,
                             name, handler);
-                    pipeline.replace(entry.getValue(), name, handler);
+                    pipeline.replace(entryHandler, name, handler);
                     return handler;
                 }
                 if (order < 0) {
@@ -133,17 +135,17 @@ public class Nettys {
                 }
                 if (order > 0) {
                     //  OK, add handler before current handler
-                    pipeline.addBefore(entry.getKey(), name, handler);
+                    pipeline.addBefore(entryName, name, handler);
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("insertHandler: channel ({}) insert handler({}/{}) before({}).",
-                                pipeline.channel(), name, handler, entry.getKey());
+                                pipeline.channel(), name, handler, entryName);
                     }
                     return handler;
                 }
             } catch (final IllegalArgumentException e) {
                 // throw by toOrdinal.call, so just ignore this entry and continue
                 LOG.warn("insertHandler: channel ({}) insert handler named({}), meet handler entry:{}, which is !NOT! ordinal, just ignore",
-                        pipeline.channel(), name, entry);
+                        pipeline.channel(), name, entryName);
                 LOG.warn("call from {}", ExceptionUtils.dumpCallStack(new Throwable(), "", 2));
                 continue;
             }
@@ -139,6 +139,15 @@ public class RxNettys {
             }};
     }
 
+    public static Func1<Channel, Observable<? extends Channel>> asyncConnectToMaybeSSL(
+            final SocketAddress remoteAddress) {
+        return asyncConnectToMaybeSSL(new Func0<SocketAddress>() {
+            @Override
+            public SocketAddress call() {
+                return remoteAddress;
+            }});
+    }
+
     public static Func1<Channel, Observable<? extends Channel>> asyncConnectToMaybeSSL(
             final Func0<SocketAddress> remoteAddressProvider) {
         return new Func1<Channel, Observable<? extends Channel>>() {
@@ -11,6 +11,7 @@ import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
 
 final public class TrafficCounterHandler extends ChannelDuplexHandler 
     implements TrafficCounter {
@@ -59,6 +60,8 @@ final public class TrafficCounterHandler extends ChannelDuplexHandler
             updateOutboundBytes((ByteBuf) msg);
         } else if (msg instanceof ByteBufHolder) {
             updateOutboundBytes(((ByteBufHolder) msg).content());
+        } else if (msg instanceof FileRegion) {
+            this._outboundBytes.addAndGet(((FileRegion) msg).count());
         }
         ctx.write(msg, promise);
     }
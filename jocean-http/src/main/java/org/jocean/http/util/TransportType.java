@@ -0,0 +1,97 @@
+package org.jocean.http.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Netty transport used by client/server bootstrap,
+ * native transport will fallback to NIO when native library unavailable.
+ */
+public enum TransportType {
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads) {
+            return new NioEventLoopGroup(nThreads);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelType() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelType() {
+            return NioSocketChannel.class;
+        }
+    },
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads) {
+            return new EpollEventLoopGroup(nThreads);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelType() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelType() {
+            return EpollSocketChannel.class;
+        }
+    },
+    ;
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(TransportType.class);
+
+    public abstract boolean isAvailable();
+
+    public abstract EventLoopGroup newEventLoopGroup(final int nThreads);
+
+    public abstract Class<? extends ServerChannel> serverChannelType();
+
+    public abstract Class<? extends SocketChannel> socketChannelType();
+
+    //  return preferred transport if available, or else NIO
+    public static TransportType select(final TransportType preferred) {
+        if (null == preferred || NIO == preferred) {
+            return NIO;
+        }
+        if (preferred.isAvailable()) {
+            return preferred;
+        }
+        LOG.warn("transport {} unavailable, fallback to NIO, cause: {}", preferred, unavailabilityCause(preferred));
+        return NIO;
+    }
+
+    //  best transport for current platform
+    public static TransportType best() {
+        return EPOLL.isAvailable() ? EPOLL : NIO;
+    }
+
+    private static Object unavailabilityCause(final TransportType type) {
+        return EPOLL == type ? Epoll.unavailabilityCause() : null;
+    }
+}
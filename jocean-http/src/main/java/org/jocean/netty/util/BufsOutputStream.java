@@ -103,7 +103,7 @@ public class BufsOutputStream<T> extends OutputStream implements DataOutput {
     }
 
     @Override
-    public synchronized void flush() throws IOException {
+    public synchronized void flush() {
         flushData();
     }
 
@@ -0,0 +1,78 @@
+package org.jocean.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+import org.jocean.idiom.AnnotationWrapper;
+import org.junit.Test;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+public class BeanPlanTestCase {
+
+    @Path("http://127.0.0.1:8080/api/demo")
+    public static class Demo {
+        @QueryParam("id")
+        private String _id;
+
+        @QueryParam("count")
+        @AnnotationWrapper(POST.class)
+        private int _count;
+
+        @HeaderParam("X-Token")
+        private String _token;
+
+        private String _ignored;
+    }
+
+    public static class NoAnnotation {
+    }
+
+    @Test
+    public final void testPlanCachedAndParams() throws Exception {
+        final BeanPlan plan = BeanPlan.of(Demo.class);
+        assertSame(plan, BeanPlan.of(Demo.class));
+
+        assertEquals("http://127.0.0.1:8080/api/demo", plan.path());
+        assertEquals("127.0.0.1", plan.pathHost());
+        assertEquals("/api/demo", plan.pathRawPath());
+
+        assertEquals(2, plan.queryParams().length);
+        assertEquals(1, plan.headerParams().length);
+
+        final Demo demo = new Demo();
+        for (final BeanPlan.Param param : plan.queryParams()) {
+            if ("id".equals(param.name())) {
+                param.set(demo, "abc");
+                assertEquals("abc", param.get(demo));
+                assertFalse(param.isAnnotatedOf(HttpMethod.POST));
+            } else {
+                assertEquals("count", param.name());
+                assertEquals(int.class, param.type());
+                param.set(demo, 3);
+                assertEquals(3, param.get(demo));
+                assertTrue(param.isAnnotatedOf(HttpMethod.POST));
+                assertFalse(param.isAnnotatedOf(HttpMethod.GET));
+            }
+        }
+        assertEquals("X-Token", plan.headerParams()[0].name());
+        assertNull(plan.headerParams()[0].get(demo));
+    }
+
+    @Test
+    public final void testPlanWithoutAnnotation() {
+        final BeanPlan plan = BeanPlan.of(NoAnnotation.class);
+        assertNull(plan.path());
+        assertNull(plan.pathHost());
+        assertEquals(0, plan.queryParams().length);
+        assertEquals(0, plan.headerParams().length);
+    }
+}
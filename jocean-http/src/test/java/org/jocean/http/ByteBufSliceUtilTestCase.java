@@ -0,0 +1,91 @@
+package org.jocean.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jocean.http.util.RxNettys;
+import org.jocean.idiom.DisposableWrapper;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+public class ByteBufSliceUtilTestCase {
+
+    private static List<DisposableWrapper<? extends ByteBuf>> buildDwbs(final int count, final int size) {
+        final List<DisposableWrapper<? extends ByteBuf>> dwbs = new ArrayList<>();
+        for (int idx = 0; idx < count; idx++) {
+            final ByteBuf buf = Unpooled.buffer(size);
+            for (int i = 0; i < size; i++) {
+                buf.writeByte(idx);
+            }
+            dwbs.add(RxNettys.wrap4release(buf));
+        }
+        return dwbs;
+    }
+
+    @Test
+    public final void testGatherAdjacentBufsUpToMaxBytes() {
+        final List<DisposableWrapper<? extends ByteBuf>> dwbs = buildDwbs(5, 100);
+
+        final List<DisposableWrapper<? extends ByteBuf>> gathered =
+                Observable.from(dwbs).compose(ByteBufSliceUtil.gatherBufs(250)).toList().toBlocking().single();
+
+        assertEquals(3, gathered.size());
+        assertEquals(200, gathered.get(0).unwrap().readableBytes());
+        assertEquals(200, gathered.get(1).unwrap().readableBytes());
+        assertEquals(100, gathered.get(2).unwrap().readableBytes());
+        //  keep order
+        assertEquals(0, gathered.get(0).unwrap().getByte(0));
+        assertEquals(1, gathered.get(0).unwrap().getByte(100));
+        assertEquals(4, gathered.get(2).unwrap().getByte(0));
+
+        gathered.get(0).dispose();
+        assertEquals(0, gathered.get(0).unwrap().refCnt());
+        assertEquals(0, dwbs.get(0).unwrap().refCnt());
+        assertEquals(0, dwbs.get(1).unwrap().refCnt());
+        //  still hold by 2nd gathered buf
+        assertEquals(2, dwbs.get(2).unwrap().refCnt());
+    }
+
+    @Test
+    public final void testBufLargerThanMaxBytesNotMerged() {
+        final List<DisposableWrapper<? extends ByteBuf>> dwbs = buildDwbs(2, 100);
+
+        final List<DisposableWrapper<? extends ByteBuf>> gathered =
+                Observable.from(dwbs).compose(ByteBufSliceUtil.gatherBufs(50)).toList().toBlocking().single();
+
+        assertEquals(2, gathered.size());
+        assertSame(dwbs.get(0), gathered.get(0));
+        assertSame(dwbs.get(1), gathered.get(1));
+    }
+
+    @Test
+    public final void testGatheredEmittedBeforeSliceCompleted() {
+        final List<DisposableWrapper<? extends ByteBuf>> dwbs = buildDwbs(3, 100);
+        final PublishSubject<DisposableWrapper<? extends ByteBuf>> source = PublishSubject.create();
+        final TestSubscriber<DisposableWrapper<? extends ByteBuf>> subscriber = new TestSubscriber<>();
+        source.compose(ByteBufSliceUtil.gatherBufs(250)).subscribe(subscriber);
+
+        source.onNext(dwbs.get(0));
+        source.onNext(dwbs.get(1));
+        subscriber.assertNoValues();
+
+        //  budget filled, emit first 2 bufs at once
+        source.onNext(dwbs.get(2));
+        subscriber.assertValueCount(1);
+        assertEquals(200, subscriber.getOnNextEvents().get(0).unwrap().readableBytes());
+        subscriber.assertNotCompleted();
+
+        source.onCompleted();
+        subscriber.assertValueCount(2);
+        assertSame(dwbs.get(2), subscriber.getOnNextEvents().get(1));
+        subscriber.assertCompleted();
+    }
+}
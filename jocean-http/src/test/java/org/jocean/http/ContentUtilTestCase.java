@@ -0,0 +1,172 @@
+package org.jocean.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jocean.idiom.DisposableWrapper;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.CharsetUtil;
+import rx.observers.TestSubscriber;
+
+public class ContentUtilTestCase {
+
+    @Test
+    public final void testParseRange() {
+        assertNull(ContentUtil.parseRange(null, 100));
+        assertNull(ContentUtil.parseRange("items=0-1", 100));
+        assertNull(ContentUtil.parseRange("bytes=0-1,5-6", 100));
+        assertNull(ContentUtil.parseRange("bytes=abc", 100));
+        assertNull(ContentUtil.parseRange("bytes=9-1", 100));
+
+        assertArrayEquals(new long[]{0, 9}, ContentUtil.parseRange("bytes=0-9", 100));
+        assertArrayEquals(new long[]{10, 99}, ContentUtil.parseRange("bytes=10-", 100));
+        assertArrayEquals(new long[]{90, 99}, ContentUtil.parseRange("bytes=90-200", 100));
+        assertArrayEquals(new long[]{80, 99}, ContentUtil.parseRange("bytes=-20", 100));
+        assertArrayEquals(new long[]{0, 99}, ContentUtil.parseRange("bytes=-200", 100));
+
+        //  unsatisfiable
+        assertEquals(0, ContentUtil.parseRange("bytes=100-", 100).length);
+        assertEquals(0, ContentUtil.parseRange("bytes=-0", 100).length);
+        assertEquals(0, ContentUtil.parseRange("bytes=0-", 0).length);
+    }
+
+    @Test
+    public final void testFileBodyEmitNextSliceOnlyAfterStep() throws Exception {
+        final File file = File.createTempFile("contentutil", ".bin");
+        file.deleteOnExit();
+        final byte[] bytes = new byte[150 * 1024];
+        new Random(0).nextBytes(bytes);
+        Files.write(file.toPath(), bytes);
+
+        final MessageBody body = ContentUtil.tobody("application/octet-stream", file, 1024, bytes.length - 2048)
+                .toBlocking().single();
+        assertEquals(bytes.length - 2048, body.contentLength());
+
+        final TestSubscriber<ByteBufSlice> slices = new TestSubscriber<>();
+        body.content().subscribe(slices);
+
+        final ByteBuf first = readSlice(slices, 0);
+        assertArrayEquals(Arrays.copyOfRange(bytes, 1024, 1024 + 64 * 1024), toBytes(first));
+        slices.assertNotCompleted();
+
+        slices.getOnNextEvents().get(0).step();
+        slices.assertValueCount(2);
+        readSlice(slices, 1);
+        //  step twice on same slice will be ignored
+        slices.getOnNextEvents().get(0).step();
+        slices.assertValueCount(2);
+
+        slices.getOnNextEvents().get(1).step();
+        final ByteBuf last = readSlice(slices, 2);
+        assertArrayEquals(Arrays.copyOfRange(bytes, 1024 + 128 * 1024, bytes.length - 1024), toBytes(last));
+        slices.assertNotCompleted();
+
+        slices.getOnNextEvents().get(2).step();
+        slices.assertCompleted();
+    }
+
+    @Test
+    public final void testFileBodySliceReadOnceAndStepBeforeRead() throws Exception {
+        final File file = File.createTempFile("contentutil", ".bin");
+        file.deleteOnExit();
+        final byte[] bytes = new byte[100 * 1024];
+        new Random(1).nextBytes(bytes);
+        Files.write(file.toPath(), bytes);
+
+        final MessageBody body = ContentUtil.tobody("application/octet-stream", file, 0, bytes.length)
+                .toBlocking().single();
+        final TestSubscriber<ByteBufSlice> slices = new TestSubscriber<>();
+        body.content().subscribe(slices);
+
+        //  element() subscribed twice share the same buf
+        final ByteBufSlice first = slices.getOnNextEvents().get(0);
+        final DisposableWrapper<? extends ByteBuf> dwb = first.element().toBlocking().single();
+        assertSame(dwb, first.element().toBlocking().single());
+
+        //  step before read: last slice's buf still readable after file channel closed
+        first.step();
+        final ByteBufSlice last = slices.getOnNextEvents().get(1);
+        last.step();
+        slices.assertCompleted();
+        assertArrayEquals(Arrays.copyOfRange(bytes, 64 * 1024, bytes.length), toBytes(readSlice(slices, 1)));
+
+        assertArrayEquals(Arrays.copyOfRange(bytes, 0, 64 * 1024), toBytes(dwb.unwrap().copy()));
+        dwb.dispose();
+        assertEquals(0, dwb.unwrap().refCnt());
+    }
+
+    public static class Demo {
+        public int id;
+        public String name;
+    }
+
+    @Test
+    public final void testEncodeAsPooledByteBuf() {
+        final Demo demo = new Demo();
+        demo.id = 1;
+        demo.name = "hello";
+
+        final ByteBuf json = ContentUtil.encodeAsByteBuf(demo, ContentUtil.TOJSON.encoder());
+        assertTrue(json.isDirect());
+        assertEquals("{\"id\":1,\"name\":\"hello\"}", json.toString(CharsetUtil.UTF_8));
+        json.release();
+
+        assertTrue(ContentUtil.TOXML instanceof ContentEncoder.ToByteBuf);
+        final DisposableWrapper<ByteBuf> dwb = ((ContentEncoder.ToByteBuf)ContentUtil.TOXML).encodeAsByteBuf(demo)
+                .toBlocking().single();
+        try {
+            assertEquals("<Demo><id>1</id><name>hello</name></Demo>", dwb.unwrap().toString(CharsetUtil.UTF_8));
+        } finally {
+            dwb.dispose();
+        }
+        assertEquals(0, dwb.unwrap().refCnt());
+    }
+
+    @Test
+    public final void testEncodeLargeBeanAsPages() {
+        final Demo demo = new Demo();
+        demo.id = 2;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char)('a' + i % 26));
+        }
+        demo.name = sb.toString();
+
+        final ByteBuf json = ContentUtil.encodeAsByteBuf(demo, ContentUtil.TOJSON.encoder());
+        try {
+            assertTrue(json instanceof CompositeByteBuf);
+            assertEquals(3, ((CompositeByteBuf)json).numComponents());
+            assertEquals("{\"id\":2,\"name\":\"" + demo.name + "\"}", json.toString(CharsetUtil.UTF_8));
+        } finally {
+            json.release();
+        }
+    }
+
+    private static ByteBuf readSlice(final TestSubscriber<ByteBufSlice> slices, final int idx) {
+        final DisposableWrapper<? extends ByteBuf> dwb =
+                slices.getOnNextEvents().get(idx).element().toBlocking().single();
+        try {
+            return dwb.unwrap().copy();
+        } finally {
+            dwb.dispose();
+        }
+    }
+
+    private static byte[] toBytes(final ByteBuf buf) {
+        final byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        buf.release();
+        return bytes;
+    }
+}
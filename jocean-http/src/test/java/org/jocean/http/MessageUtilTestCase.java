@@ -1,25 +1,36 @@
 package org.jocean.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
+import javax.xml.stream.XMLStreamException;
 
 import org.jocean.http.client.HttpClient;
 import org.jocean.http.client.impl.DefaultHttpClient;
+import org.jocean.http.util.RxNettys;
 import org.jocean.idiom.DisposableWrapper;
 import org.jocean.netty.util.BufsOutputStream;
 import org.junit.Test;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import rx.Observable;
+import rx.Subscriber;
+import rx.observers.TestSubscriber;
 
 public class MessageUtilTestCase {
 
@@ -67,6 +78,25 @@ public class MessageUtilTestCase {
         }
     }
 
+    @Test
+    public final void testToBodyByEncoderAsOneByteBuf() {
+        final Item item = new Item();
+        item.id = 7;
+        item.name = "seven";
+
+        final MessageBody body = MessageUtil.toBody(item, ContentUtil.TOJSON).toBlocking().single();
+        assertEquals(MediaType.APPLICATION_JSON, body.contentType());
+
+        final ByteBufSlice bbs = body.content().toBlocking().single();
+        final List<? extends DisposableWrapper<? extends ByteBuf>> dwbs = bbs.element().toList().toBlocking().single();
+        assertEquals(1, dwbs.size());
+        assertEquals("{\"id\":7,\"name\":\"seven\"}", dwbs.get(0).unwrap().toString(CharsetUtil.UTF_8));
+        assertEquals(dwbs.get(0).unwrap().readableBytes(), body.contentLength());
+        //  encoded once, not re-encoded when element subscribed again
+        assertSame(dwbs.get(0), bbs.element().toBlocking().single());
+        dwbs.get(0).dispose();
+    }
+
     @Test
     public final void testPostWithbody() {
         final SendRedpackRequest request = new SendRedpackRequest();
@@ -84,4 +114,171 @@ public class MessageUtilTestCase {
             .compose(MessageUtil.responseAsString())
             .toBlocking().single();
     }
+
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    //  emit next slice only after previous slice step()
+    private static Observable<ByteBufSlice> slicesOf(final AtomicInteger steps, final String... parts) {
+        return slicesOf(steps, new ArrayList<>(), parts);
+    }
+
+    //  bufs: every buf emitted by slices' element()
+    private static Observable<ByteBufSlice> slicesOf(final AtomicInteger steps, final List<ByteBuf> bufs,
+            final String... parts) {
+        return Observable.unsafeCreate(subscriber -> emitSlice(subscriber, steps, bufs, parts, 0));
+    }
+
+    private static void assertAllReleased(final List<ByteBuf> bufs) {
+        assertFalse(bufs.isEmpty());
+        for (final ByteBuf buf : bufs) {
+            assertEquals(0, buf.refCnt());
+        }
+    }
+
+    private static void emitSlice(final Subscriber<? super ByteBufSlice> subscriber, final AtomicInteger steps,
+            final List<ByteBuf> bufs, final String[] parts, final int idx) {
+        if (idx >= parts.length) {
+            subscriber.onCompleted();
+            return;
+        }
+        subscriber.onNext(new ByteBufSlice() {
+            @Override
+            public Observable<? extends DisposableWrapper<? extends ByteBuf>> element() {
+                final ByteBuf buf = Unpooled.copiedBuffer(parts[idx], CharsetUtil.UTF_8);
+                bufs.add(buf);
+                return Observable.just(RxNettys.wrap4release(buf));
+            }
+            @Override
+            public void step() {
+                steps.incrementAndGet();
+                emitSlice(subscriber, steps, bufs, parts, idx + 1);
+            }});
+    }
+
+    @Test
+    public final void testDecodeJsonArrayAsEmitElementPerSlice() {
+        final AtomicInteger steps = new AtomicInteger(0);
+        final List<ByteBuf> bufs = new ArrayList<>();
+        final TestSubscriber<Item> items = new TestSubscriber<>(0);
+
+        MessageUtil.decodeJsonArrayAs(slicesOf(steps, bufs,
+                "[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"},{\"id\":3,",
+                "\"name\":\"c\",\"unknown\":[1,{}]}",
+                "]"), Item.class).subscribe(items);
+
+        items.requestMore(1);
+        items.assertValueCount(1);
+        assertEquals(1, items.getOnNextEvents().get(0).id);
+        //  1st slice not step until its elements all emitted
+        assertEquals(0, steps.get());
+
+        items.requestMore(Long.MAX_VALUE);
+        items.assertValueCount(3);
+        items.assertCompleted();
+        assertEquals(3, steps.get());
+        assertEquals("b", items.getOnNextEvents().get(1).name);
+        assertEquals("c", items.getOnNextEvents().get(2).name);
+        //  each slice's buf disposed after fed into parser
+        assertAllReleased(bufs);
+    }
+
+    @Test
+    public final void testDecodeJsonArrayAsWithNonArrayAndBrokenContent() {
+        final Item item = MessageUtil.decodeJsonArrayAs(slicesOf(new AtomicInteger(), "{\"id\":", "9}"), Item.class)
+                .toBlocking().single();
+        assertEquals(9, item.id);
+
+        final List<ByteBuf> bufs = new ArrayList<>();
+        final TestSubscriber<Item> items = new TestSubscriber<>();
+        MessageUtil.decodeJsonArrayAs(slicesOf(new AtomicInteger(), bufs, "[{\"id\":1},{\"id\""), Item.class)
+            .subscribe(items);
+        items.assertValueCount(1);
+        items.assertError(IOException.class);
+        assertAllReleased(bufs);
+    }
+
+    private static MessageBody xmlBody(final Observable<ByteBufSlice> content) {
+        return new MessageBody() {
+            @Override
+            public String contentType() {
+                return MediaType.APPLICATION_XML;
+            }
+            @Override
+            public int contentLength() {
+                return -1;
+            }
+            @Override
+            public Observable<? extends ByteBufSlice> content() {
+                return content;
+            }};
+    }
+
+    @Test
+    public final void testDecodeXmlElementsAsEmitElementPerSlice() {
+        final AtomicInteger steps = new AtomicInteger(0);
+        final List<ByteBuf> bufs = new ArrayList<>();
+        final TestSubscriber<Item> items = new TestSubscriber<>(0);
+
+        MessageUtil.decodeXmlElementsAs(xmlBody(slicesOf(steps, bufs,
+                "<?xml version=\"1.0\"?><resp><item><id>1</id><name>a</name></item><item id=\"2\"><name>b</name></item><item><id>3",
+                "</id><!-- comment --><unknown><item>x</item></unknown><name><![CDATA[c",
+                "]]></name></item></resp>",
+                "  ")), "item", Item.class).subscribe(items);
+
+        items.requestMore(1);
+        items.assertValueCount(1);
+        assertEquals(1, items.getOnNextEvents().get(0).id);
+        //  1st slice not step until its elements all emitted
+        assertEquals(0, steps.get());
+
+        items.requestMore(Long.MAX_VALUE);
+        items.assertValueCount(3);
+        items.assertCompleted();
+        assertEquals(4, steps.get());
+        assertEquals(2, items.getOnNextEvents().get(1).id);
+        assertEquals("b", items.getOnNextEvents().get(1).name);
+        assertEquals("c", items.getOnNextEvents().get(2).name);
+        //  each slice's buf disposed after fed into parser
+        assertAllReleased(bufs);
+    }
+
+    @Test
+    public final void testDecodeXmlElementsAsWithInheritedNamespaces() {
+        final List<ByteBuf> bufs = new ArrayList<>();
+        final List<? extends Item> items = MessageUtil.decodeXmlElementsAs(xmlBody(slicesOf(new AtomicInteger(), bufs,
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<r:resp xmlns:r=\"urn:r\" xmlns:a=\"urn:a\" xmlns=\"urn:d\">",
+                "<r:head><a:item><a:id>0</a:id></a:item></r:head><a:it",
+                "em a:id=\"1\"><a:name>\u00e9</a:name></a:item>",
+                "<item xmlns:a=\"urn:other\"><id>2</id><a:name>b</a:name></item><r:item><id>3</id></r:item></r:resp>")),
+                "item", Item.class).toList().toBlocking().single();
+
+        assertEquals(4, items.size());
+        assertEquals(0, items.get(0).id);
+        assertEquals(1, items.get(1).id);
+        assertEquals("\u00e9", items.get(1).name);
+        assertEquals(2, items.get(2).id);
+        assertEquals("b", items.get(2).name);
+        assertEquals(3, items.get(3).id);
+        assertAllReleased(bufs);
+    }
+
+    @Test
+    public final void testDecodeXmlElementsAsRootAndBrokenContent() {
+        final SendRedpackRequest req = MessageUtil.decodeXmlElementsAs(xmlBody(slicesOf(new AtomicInteger(),
+                "<xml><mch_billno>2222", "22</mch_billno><mch_id>11111</mch_id></xml>")),
+                "xml", SendRedpackRequest.class).toBlocking().single();
+        assertEquals("222222", req.getMchBillno());
+        assertEquals("11111", req.getMchId());
+
+        final List<ByteBuf> bufs = new ArrayList<>();
+        final TestSubscriber<Item> items = new TestSubscriber<>();
+        MessageUtil.decodeXmlElementsAs(xmlBody(slicesOf(new AtomicInteger(), bufs, "<resp><item><id>1</id></item><item>")),
+                "item", Item.class).subscribe(items);
+        items.assertValueCount(1);
+        items.assertError(XMLStreamException.class);
+        assertAllReleased(bufs);
+    }
 }
@@ -19,8 +19,14 @@ import org.slf4j.LoggerFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
@@ -28,11 +34,17 @@ import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.CharsetUtil;
 import rx.Observable;
 import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Action2;
+import rx.subscriptions.Subscriptions;
 
 public class TestHttpUtil {
 
@@ -113,4 +125,42 @@ public class TestHttpUtil {
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         return  Observable.<HttpObject>just(response);
     }
+
+    //  h2c (with prior knowledge) server, response request's uri as content
+    public static Subscription createTestH2cEchoServer(final String acceptId) {
+        final EventLoopGroup group = new DefaultEventLoopGroup(1);
+        final Channel server = new ServerBootstrap()
+            .group(group)
+            .channel(LocalServerChannel.class)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(final Channel channel) throws Exception {
+                    channel.pipeline().addLast(Http2MultiplexCodecBuilder.forServer(H2_ECHO_STREAM).build());
+                }})
+            .bind(new LocalAddress(acceptId)).syncUninterruptibly().channel();
+        return Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                server.close();
+                group.shutdownGracefully();
+            }});
+    }
+
+    private static final ChannelHandler H2_ECHO_STREAM = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel stream) throws Exception {
+            stream.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true),
+                new HttpObjectAggregator(64 * 1024),
+                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                    @Override
+                    protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpRequest req)
+                            throws Exception {
+                        final FullHttpResponse response = new DefaultFullHttpResponse(
+                                HttpVersion.HTTP_1_1, OK,
+                                Unpooled.copiedBuffer(req.uri(), CharsetUtil.UTF_8));
+                        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+                        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                        ctx.writeAndFlush(response);
+                    }});
+        }};
 }
@@ -0,0 +1,148 @@
+package org.jocean.http.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.jocean.http.util.HttpHandlers;
+import org.jocean.http.util.Nettys;
+import org.junit.Test;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class BoundedChannelPoolTestCase {
+
+    private static Channel readyChannel() {
+        final Channel channel = new EmbeddedChannel();
+        Nettys.setChannelReady(channel);
+        return channel;
+    }
+
+    @Test
+    public void testAcquireQueuedAndHandoffWhenRecycle() {
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 0);
+        final Channel ch1 = readyChannel();
+        final Channel ch2 = readyChannel();
+        final SocketAddress address = ch1.remoteAddress();
+
+        final TestSubscriber<Channel> acquire1 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch1)).subscribe(acquire1);
+        acquire1.assertValue(ch1);
+        assertEquals(1, pool.getTotalChannelCount());
+
+        final TestSubscriber<Channel> acquire2 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch2)).subscribe(acquire2);
+        acquire2.assertNoValues();
+        acquire2.assertNotCompleted();
+        assertEquals(1, pool.getPendingAcquireCount());
+
+        final TestSubscriber<Channel> acquire3 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch2)).subscribe(acquire3);
+        acquire3.assertError(ChannelPoolExhaustedException.class);
+        assertEquals(1, pool.getNumRejectedAcquires());
+
+        assertFalse(pool.recycleChannel(ch1));
+        //  handoff in channel's eventLoop
+        acquire2.assertNoValues();
+        ((EmbeddedChannel)ch1).runPendingTasks();
+        acquire2.assertValue(ch1);
+        acquire2.assertCompleted();
+        assertEquals(0, pool.getPendingAcquireCount());
+        assertEquals(1, pool.getNumHandoffAcquires());
+        assertEquals(1, pool.getTotalChannelCount());
+
+        ch1.close();
+        assertEquals(0, pool.getTotalChannelCount());
+        //  host without any slot removed
+        assertEquals(0, pool.getHostCount());
+    }
+
+    @Test
+    public void testExpiredChannelNotHandoff() throws InterruptedException {
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 0);
+        pool.setMaxLifetime(1, TimeUnit.MILLISECONDS);
+        final Channel ch1 = readyChannel();
+        final Channel ch2 = readyChannel();
+        final SocketAddress address = ch1.remoteAddress();
+
+        pool.limitNewChannel(address, Observable.just(ch1)).subscribe(new TestSubscriber<Channel>());
+
+        final TestSubscriber<Channel> acquire2 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch2)).subscribe(acquire2);
+        acquire2.assertNoValues();
+
+        Thread.sleep(10);
+        pool.recycleChannel(ch1);
+        ((EmbeddedChannel)ch1).runPendingTasks();
+
+        //  ch1 reach max lifetime, closed and it's slot used to create ch2
+        assertFalse(ch1.isOpen());
+        acquire2.assertValue(ch2);
+        assertEquals(0, pool.getNumHandoffAcquires());
+        assertEquals(1, pool.getNumEvictedChannels());
+        assertEquals(1, pool.getTotalChannelCount());
+    }
+
+    @Test
+    public void testAcquireCreateNewChannelWhenChannelClosed() {
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 0);
+        final Channel ch1 = readyChannel();
+        final Channel ch2 = readyChannel();
+        final SocketAddress address = ch1.remoteAddress();
+
+        final TestSubscriber<Channel> acquire1 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch1)).subscribe(acquire1);
+
+        final TestSubscriber<Channel> acquire2 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch2)).subscribe(acquire2);
+        acquire2.assertNoValues();
+
+        ch1.close();
+        acquire2.assertValue(ch2);
+        assertEquals(1, pool.getTotalChannelCount());
+        assertEquals(0, pool.getPendingAcquireCount());
+    }
+
+    @Test
+    public void testAcquireTimeout() {
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 100);
+        final Channel ch1 = readyChannel();
+        final SocketAddress address = ch1.remoteAddress();
+
+        pool.limitNewChannel(address, Observable.just(ch1)).subscribe(new TestSubscriber<Channel>());
+
+        final TestSubscriber<Channel> acquire2 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(readyChannel())).subscribe(acquire2);
+        acquire2.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        acquire2.assertError(ChannelPoolExhaustedException.class);
+        assertEquals(1, pool.getNumTimeoutAcquires());
+        assertEquals(0, pool.getPendingAcquireCount());
+    }
+
+    @Test
+    public void testUnsubscribeBeforeCreatedReleaseSlot() {
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 0);
+        final Channel ch1 = readyChannel();
+        final SocketAddress address = ch1.remoteAddress();
+
+        final TestSubscriber<Channel> acquire1 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.<Channel>never()).subscribe(acquire1);
+        assertEquals(1, pool.getTotalChannelCount());
+
+        acquire1.unsubscribe();
+        assertEquals(0, pool.getTotalChannelCount());
+        assertEquals(0, pool.getHostCount());
+
+        //  acquire again after host removed
+        final TestSubscriber<Channel> acquire2 = new TestSubscriber<>();
+        pool.limitNewChannel(address, Observable.just(ch1)).subscribe(acquire2);
+        acquire2.assertValue(ch1);
+        assertEquals(1, pool.getTotalChannelCount());
+        assertEquals(1, pool.getHostCount());
+    }
+}
@@ -0,0 +1,102 @@
+package org.jocean.http.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.jocean.http.util.HttpHandlers;
+import org.jocean.http.util.Nettys;
+import org.junit.Test;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import rx.observers.TestSubscriber;
+
+public class DefaultChannelPoolTestCase {
+
+    private static EmbeddedChannel readyChannel() {
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        Nettys.setChannelReady(channel);
+        return channel;
+    }
+
+    @Test
+    public void testEvictIdleChannelByScheduledTask() throws Exception {
+        final DefaultChannelPool pool = new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE);
+        pool.setIdleTimeout(50, TimeUnit.MILLISECONDS);
+        pool.setEvictionInterval(10, TimeUnit.MILLISECONDS);
+
+        final EmbeddedChannel channel = readyChannel();
+        assertTrue(pool.recycleChannel(channel));
+
+        Thread.sleep(100);
+        channel.runScheduledPendingTasks();
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, pool.getNumEvictedChannels());
+        assertNull(pool.findActiveChannel(channel.remoteAddress()));
+    }
+
+    @Test
+    public void testNotReuseChannelExceedMaxLifetime() throws Exception {
+        final DefaultChannelPool pool = new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE);
+        pool.setMaxLifetime(50, TimeUnit.MILLISECONDS);
+
+        final Channel channel = readyChannel();
+        assertTrue(pool.recycleChannel(channel));
+        assertEquals(channel, pool.findActiveChannel(channel.remoteAddress()));
+
+        assertTrue(pool.recycleChannel(channel));
+        Thread.sleep(100);
+
+        assertNull(pool.findActiveChannel(channel.remoteAddress()));
+        assertFalse(channel.isOpen());
+        assertEquals(1, pool.getNumEvictedChannels());
+    }
+
+    @Test(timeout=10000)
+    public void testValidateDropChannelClosedByPeer() throws Exception {
+        final DefaultChannelPool pool = new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE);
+        pool.setValidateBeforeReuse(true);
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (final ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            //  no read pending, so peer's FIN not handled by eventLoop
+            final Channel channel = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                    .option(ChannelOption.AUTO_READ, false)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(ss.getLocalSocketAddress()).sync().channel();
+            Nettys.setChannelReady(channel);
+            final Socket peer = ss.accept();
+
+            assertTrue(pool.recycleChannel(channel));
+            assertEquals(channel, pool.retainChannel(channel.remoteAddress()).toBlocking().single());
+            assertEquals(0, pool.getNumStaleOnBorrow());
+
+            assertTrue(pool.recycleChannel(channel));
+            peer.close();
+            Thread.sleep(100);
+            assertTrue(channel.isActive());
+
+            final TestSubscriber<Channel> retain = new TestSubscriber<>();
+            pool.retainChannel(channel.remoteAddress()).subscribe(retain);
+            retain.awaitTerminalEvent(1, TimeUnit.SECONDS);
+            retain.assertNoValues();
+            retain.assertError(RuntimeException.class);
+            assertFalse(channel.isActive());
+            assertEquals(1, pool.getNumStaleOnBorrow());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package org.jocean.http.client.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.ConnectException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLException;
 
@@ -27,6 +33,7 @@ import org.jocean.http.WriteCtrl;
 import org.jocean.http.client.HttpClient.HttpInitiator;
 import org.jocean.http.client.HttpClient.InitiatorBuilder;
 import org.jocean.http.server.HttpServerBuilder.HttpTrade;
+import org.jocean.http.util.HttpHandlers;
 import org.jocean.http.util.Nettys;
 import org.jocean.http.util.RxNettys;
 import org.jocean.idiom.DisposableWrapper;
@@ -38,11 +45,13 @@ import org.slf4j.LoggerFactory;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PoolArenaMetric;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.local.LocalAddress;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
@@ -51,7 +60,9 @@ import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
@@ -60,6 +71,7 @@ import rx.Observable;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.functions.Action2;
 import rx.observables.ConnectableObservable;
 import rx.observers.TestSubscriber;
 
@@ -135,7 +147,7 @@ public class DefaultHttpClientTestCase {
                 + allDirectActiveAllocationsCount(allocator);
     }
 
-    private static byte[] dumpResponseContentAsBytes(final Observable<DisposableWrapper<FullHttpResponse>> getresp) throws IOException {
+    private static byte[] dumpResponseContentAsBytes(final Observable<? extends DisposableWrapper<FullHttpResponse>> getresp) throws IOException {
         final DisposableWrapper<FullHttpResponse> dwresp = getresp.toBlocking().single();
         try {
             return Nettys.dumpByteBufAsBytes(dwresp.unwrap().content());
@@ -623,6 +635,245 @@ public class DefaultHttpClientTestCase {
         }
     }
 
+    @Test(timeout=5000)
+    public void testPrewarmChannelsThenReuseAsHttp()
+        throws Exception {
+        //  配置 池化分配器 为 取消缓存，使用 Heap
+        configDefaultAllocator();
+
+        final PooledByteBufAllocator allocator = defaultAllocator();
+
+        final BlockingQueue<HttpTrade> trades = new ArrayBlockingQueue<>(1);
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestServerWith(addr,
+                trades,
+                Feature.ENABLE_LOGGING);
+        final DefaultHttpClient client =
+                new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING);
+
+        try {
+            final List<? extends Channel> prewarmed =
+                    client.prewarm(new LocalAddress(addr), 2).toList().toBlocking().single();
+            assertEquals(2, prewarmed.size());
+
+            final Channel ch1 = (Channel)startInteraction(
+                    client.initiator().remoteAddress(new LocalAddress(addr)),
+                    Observable.just(fullHttpRequest()),
+                    standardInteraction(allocator, trades)).transport();
+
+            assertTrue(prewarmed.contains(ch1));
+            assertEquals(0, allActiveAllocationsCount(allocator));
+        } finally {
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testPipeliningInteractionsMatchResponseInOrder()
+        throws Exception {
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestServerWith(addr,
+                new Action2<FullHttpRequest, HttpTrade>() {
+                    @Override
+                    public void call(final FullHttpRequest req, final HttpTrade trade) {
+                        trade.outbound(TestHttpUtil.buildBytesResponse("text/plain", req.uri().getBytes()));
+                    }},
+                Feature.ENABLE_LOGGING);
+        final DefaultHttpClient client =
+                new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING);
+
+        try (final HttpInitiator initiator = client.initiator().remoteAddress(new LocalAddress(addr))
+                .feature(new Feature.ENABLE_PIPELINING(2)).build().toBlocking().single()) {
+            final Observable<? extends DisposableWrapper<FullHttpResponse>> resp1 = initiator.defineInteraction(
+                    Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/1")))
+                    .compose(RxNettys.fullmsg2fullresp(initiator, true)).cache();
+            final Observable<? extends DisposableWrapper<FullHttpResponse>> resp2 = initiator.defineInteraction(
+                    Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/2")))
+                    .compose(RxNettys.fullmsg2fullresp(initiator, true)).cache();
+            resp1.subscribe();
+            resp2.subscribe();
+
+            assertEquals("/1", new String(dumpResponseContentAsBytes(resp1)));
+            assertEquals("/2", new String(dumpResponseContentAsBytes(resp2)));
+        } finally {
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testHttp2InitiatorsShareConnectionAsH2c()
+        throws Exception {
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestH2cEchoServer(addr);
+        final DefaultHttpClient client =
+                new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING,
+                Feature.ENABLE_HTTP2);
+
+        try (final HttpInitiator initiator1 = client.initiator().remoteAddress(new LocalAddress(addr))
+                    .build().toBlocking().single();
+             final HttpInitiator initiator2 = client.initiator().remoteAddress(new LocalAddress(addr))
+                    .build().toBlocking().single()) {
+            assertNotSame(initiator1.transport(), initiator2.transport());
+            assertSame(((Channel)initiator1.transport()).parent(), ((Channel)initiator2.transport()).parent());
+
+            final Observable<? extends DisposableWrapper<FullHttpResponse>> resp1 = initiator1.defineInteraction(
+                    Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/1")))
+                    .compose(RxNettys.fullmsg2fullresp(initiator1, true)).cache();
+            final Observable<? extends DisposableWrapper<FullHttpResponse>> resp2 = initiator2.defineInteraction(
+                    Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/2")))
+                    .compose(RxNettys.fullmsg2fullresp(initiator2, true)).cache();
+            resp2.subscribe();
+            resp1.subscribe();
+
+            assertEquals("/1", new String(dumpResponseContentAsBytes(resp1)));
+            assertEquals("/2", new String(dumpResponseContentAsBytes(resp2)));
+        } finally {
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testHttp2StreamWithBodySendedRightAfterConnected()
+        throws Exception {
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestH2cEchoServer(addr);
+        final DefaultHttpClient client =
+                new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING,
+                Feature.ENABLE_HTTP2);
+
+        final BlockingQueue<HttpInitiator> initiators = new ArrayBlockingQueue<>(1);
+        try {
+            final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/body");
+            HttpUtil.setContentLength(request, CONTENT.length);
+            //  define interaction once stream opened, and send body as raw ByteBuf
+            final Observable<? extends DisposableWrapper<FullHttpResponse>> resp =
+                    client.initiator().remoteAddress(new LocalAddress(addr)).build()
+                    .flatMap(initiator -> {
+                        initiators.add(initiator);
+                        return initiator.defineInteraction(Observable.just(request,
+                                    Unpooled.wrappedBuffer(CONTENT), LastHttpContent.EMPTY_LAST_CONTENT))
+                                .compose(RxNettys.fullmsg2fullresp(initiator, true));
+                    });
+
+            assertEquals("/body", new String(dumpResponseContentAsBytes(resp)));
+        } finally {
+            final HttpInitiator initiator = initiators.poll();
+            if (null != initiator) {
+                initiator.close();
+            }
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testHttp2ConnectionClosedWhenClientClose()
+        throws Exception {
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestH2cEchoServer(addr);
+        //  keep eventLoop alive after client closed, as shared eventLoop
+        final AtomicBoolean shutdown = new AtomicBoolean(false);
+        final TestChannelCreator creator = new TestChannelCreator() {
+            @Override
+            public void close() {
+                if (shutdown.get()) {
+                    super.close();
+                }
+            }};
+        final DefaultHttpClient client =
+                new DefaultHttpClient(creator,
+                Feature.ENABLE_LOGGING,
+                Feature.ENABLE_HTTP2);
+
+        try {
+            final HttpInitiator initiator = client.initiator().remoteAddress(new LocalAddress(addr))
+                    .build().toBlocking().single();
+            final Channel connection = ((Channel)initiator.transport()).parent();
+            assertTrue(connection.isActive());
+
+            client.close();
+            connection.closeFuture().await();
+            assertFalse(connection.isOpen());
+        } finally {
+            shutdown.set(true);
+            creator.close();
+            server.unsubscribe();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testPipeliningResendOnlyIdempotentWhenConnectionClosed()
+        throws Exception {
+        final AtomicBoolean first = new AtomicBoolean(true);
+        final BlockingQueue<HttpTrade> firstTrade = new ArrayBlockingQueue<>(1);
+        final BlockingQueue<HttpMethod> resended = new ArrayBlockingQueue<>(10);
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestServerWith(addr,
+                new Action2<FullHttpRequest, HttpTrade>() {
+                    @Override
+                    public void call(final FullHttpRequest req, final HttpTrade trade) {
+                        if (first.compareAndSet(true, false)) {
+                            firstTrade.add(trade);
+                        } else {
+                            resended.add(req.method());
+                            trade.outbound(TestHttpUtil.buildBytesResponse("text/plain", CONTENT));
+                        }
+                    }},
+                Feature.ENABLE_LOGGING);
+        final DefaultHttpClient client =
+                new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING);
+
+        try (final HttpInitiator initiator = client.initiator().remoteAddress(new LocalAddress(addr))
+                .feature(new Feature.ENABLE_PIPELINING(3)).build().toBlocking().single()) {
+            final CountDownLatch written = new CountDownLatch(3);
+            final List<TestSubscriber<DisposableWrapper<FullHttpResponse>>> subscribers = new ArrayList<>();
+            for (final HttpMethod method : Arrays.asList(HttpMethod.GET, HttpMethod.GET, HttpMethod.POST, HttpMethod.GET)) {
+                final TestSubscriber<DisposableWrapper<FullHttpResponse>> subscriber = new TestSubscriber<>();
+                initiator.defineInteraction(
+                        Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, "/"))
+                            .doOnCompleted(() -> written.countDown()))
+                    .compose(RxNettys.fullmsg2fullresp(initiator, true))
+                    .subscribe(subscriber);
+                subscribers.add(subscriber);
+            }
+
+            //  1st GET, 2nd GET and POST written (pipelining depth 3), last GET still queued
+            written.await();
+
+            // disconnect mid-pipeline
+            firstTrade.take().close();
+
+            for (final TestSubscriber<DisposableWrapper<FullHttpResponse>> subscriber : subscribers) {
+                subscriber.awaitTerminalEvent();
+            }
+            //  head interaction failed by connection closed
+            subscribers.get(0).assertError(TransportException.class);
+            //  written GET and unwritten GET resended
+            subscribers.get(1).assertValueCount(1);
+            subscribers.get(1).assertCompleted();
+            subscribers.get(3).assertValueCount(1);
+            subscribers.get(3).assertCompleted();
+            //  written POST can't be resend
+            subscribers.get(2).assertError(TransportException.class);
+            subscribers.get(2).assertNoValues();
+            //  only GETs resended via successor
+            assertEquals(HttpMethod.GET, resended.take());
+            assertEquals(HttpMethod.GET, resended.take());
+            assertNull(resended.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
     @Test(timeout=5000)
     public void testInitiatorInteractionSuccessAsHttpsReuseChannel()
         throws Exception {
@@ -1883,5 +2134,47 @@ public class DefaultHttpClientTestCase {
     }
     */
 
+    private static void awaitIdleChannels(final ChannelPool pool, final LocalAddress address, final int count,
+            final TestChannelCreator creator, final int created) throws InterruptedException {
+        while (pool.idleChannelCount(address) != count || creator.getChannels().size() != created) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testKeepMinIdleRefillClosedChannelsAndStopByUnsubscribe() throws Exception {
+        final String addr = UUID.randomUUID().toString();
+        final Subscription server = TestHttpUtil.createTestServerWith(addr,
+                new ArrayBlockingQueue<HttpTrade>(10));
+        final TestChannelCreator creator = new TestChannelCreator();
+        final DefaultChannelPool pool = new DefaultChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE);
+        final DefaultHttpClient client = new DefaultHttpClient(creator, pool);
+        final LocalAddress address = new LocalAddress(addr);
+        try {
+            final Subscription keeping = client.keepMinIdle(address, 2, 50, TimeUnit.MILLISECONDS);
+
+            awaitIdleChannels(pool, address, 2, creator, 2);
+
+            //  idle channels closed, and refilled to minIdle
+            for (final Channel channel : creator.getChannels()) {
+                channel.close().sync();
+            }
+            awaitIdleChannels(pool, address, 2, creator, 4);
+
+            //  stop refill after unsubscribe
+            keeping.unsubscribe();
+            for (final Channel channel : creator.getChannels()) {
+                channel.close().sync();
+            }
+            awaitIdleChannels(pool, address, 0, creator, 4);
+            Thread.sleep(300);
+            assertEquals(0, pool.idleChannelCount(address));
+            assertEquals(4, creator.getChannels().size());
+        } finally {
+            client.close();
+            server.unsubscribe();
+        }
+    }
+
     // TODO, 增加 transfer request 时, 调用 response subscriber.unsubscribe 后，write future是否会被正确取消。
 }
@@ -0,0 +1,81 @@
+package org.jocean.http.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.net.SocketAddress;
+import java.util.concurrent.Callable;
+
+import org.jocean.http.util.HttpHandlers;
+import org.jocean.http.util.Nettys;
+import org.junit.Test;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+
+public class EventLoopAffinityChannelPoolTestCase {
+
+    private static final ChannelInitializer<Channel> NOOP_INITIALIZER = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel channel) throws Exception {
+        }};
+
+    private static Channel findInLoop(final EventLoopAffinityChannelPool pool,
+            final SocketAddress address, final EventLoop eventLoop) throws Exception {
+        return eventLoop.submit(new Callable<Channel>() {
+            @Override
+            public Channel call() throws Exception {
+                return pool.findActiveChannel(address);
+            }}).get();
+    }
+
+    @Test
+    public void testReuseSameLoopFirstThenCrossLoop() throws Exception {
+        final EventLoopGroup serverGroup = new DefaultEventLoopGroup(1);
+        final EventLoopGroup group = new DefaultEventLoopGroup(2);
+        final LocalAddress address = new LocalAddress("test-affinity");
+        try {
+            final Channel server = new ServerBootstrap().group(serverGroup)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(NOOP_INITIALIZER)
+                    .bind(address).sync().channel();
+            final Bootstrap bootstrap = new Bootstrap().group(group)
+                    .channel(LocalChannel.class)
+                    .handler(NOOP_INITIALIZER);
+            final Channel ch1 = bootstrap.connect(address).sync().channel();
+            final Channel ch2 = bootstrap.connect(address).sync().channel();
+            assertNotSame(ch1.eventLoop(), ch2.eventLoop());
+
+            final EventLoopAffinityChannelPool pool = new EventLoopAffinityChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE);
+            Nettys.setChannelReady(ch1);
+            Nettys.setChannelReady(ch2);
+            pool.recycleChannel(ch1);
+            pool.recycleChannel(ch2);
+            assertEquals(2, pool.getIdleChannelCount());
+
+            assertEquals(ch2, findInLoop(pool, address, ch2.eventLoop()));
+            assertEquals(1, pool.getNumSameLoopReuses());
+
+            assertEquals(ch1, findInLoop(pool, address, ch2.eventLoop()));
+            assertEquals(1, pool.getNumCrossLoopReuses());
+
+            assertNull(findInLoop(pool, address, ch2.eventLoop()));
+            assertEquals(1, pool.getNumReuseMisses());
+            assertEquals(0, pool.getIdleChannelCount());
+
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully();
+            serverGroup.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.jocean.http.endpoint.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jocean.http.FullMessage;
+import org.jocean.http.Interact;
+import org.jocean.http.Interaction;
+import org.jocean.http.MessageBody;
+import org.jocean.http.client.HttpClient.HttpInitiator;
+import org.jocean.http.endpoint.Endpoint;
+import org.jocean.http.endpoint.EndpointSelector;
+import org.jocean.http.endpoint.EndpointSelectors;
+import org.jocean.http.endpoint.EndpointStat;
+import org.jocean.http.endpoint.mbean.EndpointSetMXBean;
+import org.jocean.idiom.jmx.MBeanRegister;
+import org.junit.Test;
+
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+public class DefaultEndpointSetTestCase {
+
+    private static DefaultEndpointSet endpointSetOf(final EndpointSelector selector, final Endpoint... endpoints) {
+        return new DefaultEndpointSet(new ArrayList<>(Arrays.asList(endpoints)), selector);
+    }
+
+    @Test
+    public final void testWeightedRoundRobin() {
+        final EndpointSelector selector = EndpointSelectors.weightedRoundRobin();
+        final DefaultEndpointSet endpoints = endpointSetOf(selector,
+                new DefaultEndpoint("svc", "http://a", 3),
+                new DefaultEndpoint("svc", "http://b", 1),
+                new DefaultEndpoint("other", "http://c", 5));
+
+        final StringBuilder sb = new StringBuilder();
+        for (int idx = 0; idx < 8; idx++) {
+            sb.append(selector.select(endpoints.stats("svc")).endpoint().uri().substring(7));
+        }
+        //  smooth: b interleaved with a
+        assertEquals("aabaaaba", sb.toString());
+    }
+
+    @Test
+    public final void testSelectorByName() {
+        assertSame(EndpointSelectors.random(), EndpointSelectors.byName("random"));
+        assertSame(EndpointSelectors.leastInflight(), EndpointSelectors.byName("leastInflight"));
+        assertSame(EndpointSelectors.peakEwma(), EndpointSelectors.byName("peakEwma"));
+        assertEquals("weightedRoundRobin", EndpointSelectors.byName("weightedRoundRobin").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testSelectorByUnknownName() {
+        EndpointSelectors.byName("roundRobin");
+    }
+
+    @Test
+    public final void testPowerOfTwoChoicesAvoidBusyAndSlow() {
+        final DefaultEndpointSet endpoints = endpointSetOf(EndpointSelectors.random(),
+                new DefaultEndpoint("svc", "http://a"),
+                new DefaultEndpoint("svc", "http://b"));
+        final EndpointStat[] stats = endpoints.stats("svc");
+        final DefaultEndpointStat busy = (DefaultEndpointStat)stats[0];
+
+        busy.onStart();
+        busy.onStart();
+        for (int idx = 0; idx < 10; idx++) {
+            assertSame(stats[1], EndpointSelectors.leastInflight().select(stats));
+            //  no latency sample but busy, penalized
+            assertSame(stats[1], EndpointSelectors.peakEwma().select(stats));
+        }
+
+        busy.onEnd();
+        busy.onEnd();
+        busy.onLatency(System.nanoTime() - 100_000_000L);
+        ((DefaultEndpointStat)stats[1]).onLatency(System.nanoTime() - 1_000_000L);
+        assertTrue(stats[0].latencyEwma() > stats[1].latencyEwma());
+        for (int idx = 0; idx < 10; idx++) {
+            assertSame(stats[1], EndpointSelectors.peakEwma().select(stats));
+        }
+    }
+
+    @Test
+    public final void testOfFeedStatByExecution() {
+        final DefaultEndpointSet endpoints = endpointSetOf(EndpointSelectors.peakEwma(),
+                new DefaultEndpoint("svc", "http://a"));
+        final AtomicReference<String> uri = new AtomicReference<>();
+        final PublishSubject<FullMessage<HttpResponse>> response = PublishSubject.create();
+
+        final Interact interact = endpoints.of(() -> "svc").call(Observable.just(fakeInteract(uri, response)))
+                .toBlocking().single();
+        assertEquals("http://a", uri.get());
+
+        final EndpointStat stat = endpoints.stats("svc")[0];
+        final TestSubscriber<FullMessage<HttpResponse>> subscriber = new TestSubscriber<>();
+        interact.execution().toBlocking().single().execute().subscribe(subscriber);
+        assertEquals(1, stat.inflight());
+        assertEquals(0.0, stat.latencyEwma(), 0.0);
+
+        response.onNext(responseOf(HttpResponseStatus.OK));
+        assertEquals(0, stat.inflight());
+        assertTrue(stat.latencyEwma() > 0.0);
+
+        //  unsubscribe before response
+        final List<TestSubscriber<FullMessage<HttpResponse>>> subscribers = new ArrayList<>();
+        for (int idx = 0; idx < 3; idx++) {
+            final TestSubscriber<FullMessage<HttpResponse>> s = new TestSubscriber<>();
+            interact.execution().toBlocking().single().execute().subscribe(s);
+            subscribers.add(s);
+        }
+        assertEquals(3, stat.inflight());
+        for (final TestSubscriber<FullMessage<HttpResponse>> s : subscribers) {
+            s.unsubscribe();
+        }
+        assertEquals(0, stat.inflight());
+    }
+
+    @Test
+    public final void testEjectOutlierWithCap() {
+        final DefaultEndpointSet endpoints = endpointSetOf(EndpointSelectors.random(),
+                new DefaultEndpoint("svc", "http://a"),
+                new DefaultEndpoint("svc", "http://b"));
+        endpoints.setConsecutiveFailures(3);
+        final EndpointStat[] stats = endpoints.stats("svc");
+        final DefaultEndpointStat a = (DefaultEndpointStat)stats[0];
+        final DefaultEndpointStat b = (DefaultEndpointStat)stats[1];
+
+        endpoints.onResult("svc", a, false);
+        endpoints.onResult("svc", a, false);
+        endpoints.onResult("svc", a, true);
+        endpoints.onResult("svc", a, false);
+        endpoints.onResult("svc", a, false);
+        assertFalse(a.isEjected());
+        assertEquals(2, a.consecutiveFailures());
+        assertEquals(0.8f, a.failureRate(), 0.001f);
+
+        endpoints.onResult("svc", a, false);
+        assertTrue(a.isEjected());
+        assertEquals(0, a.consecutiveFailures());
+
+        //  ejected endpoint not selected
+        final AtomicReference<String> uri = new AtomicReference<>();
+        for (int idx = 0; idx < 10; idx++) {
+            endpoints.of(() -> "svc").call(Observable.just(fakeInteract(uri, Observable.never())))
+                .toBlocking().single();
+            assertEquals("http://b", uri.get());
+        }
+
+        //  at most 1 of 2 ejected
+        for (int idx = 0; idx < 3; idx++) {
+            endpoints.onResult("svc", b, false);
+        }
+        assertFalse(b.isEjected());
+        assertEquals(3, b.consecutiveFailures());
+    }
+
+    @Test
+    public final void testEjectionTimeGrowsExponentially() {
+        final DefaultEndpointStat stat = new DefaultEndpointStat(new DefaultEndpoint("svc", "http://a"));
+        final long now = System.nanoTime();
+        assertEquals(100, stat.eject(now, 100, 1000));
+        assertEquals(200, stat.eject(now + 100, 100, 1000));
+        assertEquals(400, stat.eject(now + 300, 100, 1000));
+        assertEquals(800, stat.eject(now + 700, 100, 1000));
+        assertEquals(1000, stat.eject(now + 1500, 100, 1000));
+        //  healthy longer than max ejection time
+        assertEquals(100, stat.eject(now + 2500 + 1001, 100, 1000));
+    }
+
+    @Test
+    public final void testServerErrorAsFailure() {
+        final DefaultEndpointSet endpoints = endpointSetOf(EndpointSelectors.random(),
+                new DefaultEndpoint("svc", "http://a"));
+        final PublishSubject<FullMessage<HttpResponse>> response = PublishSubject.create();
+        final Interact interact = endpoints.of(() -> "svc")
+                .call(Observable.just(fakeInteract(new AtomicReference<String>(), response)))
+                .toBlocking().single();
+
+        interact.execution().toBlocking().single().execute().subscribe(new TestSubscriber<>());
+        response.onNext(responseOf(HttpResponseStatus.SERVICE_UNAVAILABLE));
+        assertEquals(1, endpoints.stats("svc")[0].consecutiveFailures());
+    }
+
+    @Test
+    public final void testErrorSampledAsPenaltyLatency() {
+        final DefaultEndpointSet endpoints = endpointSetOf(EndpointSelectors.peakEwma(),
+                new DefaultEndpoint("svc", "http://a"));
+        final Interact interact = endpoints.of(() -> "svc")
+                .call(Observable.just(fakeInteract(new AtomicReference<String>(),
+                        Observable.error(new RuntimeException("connection refused")))))
+                .toBlocking().single();
+
+        interact.execution().toBlocking().single().execute().subscribe(new TestSubscriber<>());
+        final EndpointStat failfast = endpoints.stats("svc")[0];
+        assertEquals(0, failfast.inflight());
+        assertEquals(1, failfast.consecutiveFailures());
+        //  fail fast, but not look faster than slow one
+        final DefaultEndpointStat slow = new DefaultEndpointStat(new DefaultEndpoint("svc", "http://b"));
+        slow.onLatency(System.nanoTime() - 100_000_000L);
+        assertTrue(failfast.latencyEwma() > slow.latencyEwma());
+        for (int idx = 0; idx < 10; idx++) {
+            assertSame(slow, EndpointSelectors.peakEwma().select(new EndpointStat[]{failfast, slow}));
+        }
+    }
+
+    @Test
+    public final void testIndexedEndpointsLiveUpdate() {
+        final IndexedEndpoints indexed = new IndexedEndpoints();
+        final DefaultEndpointSet endpoints = new DefaultEndpointSet(indexed, EndpointSelectors.peakEwma());
+        assertEquals(0, endpoints.uris("svc").length);
+
+        final Endpoint a = new DefaultEndpoint("svc", "http://a");
+        final Endpoint b = new DefaultEndpoint("svc", "http://b");
+        indexed.add(a);
+        indexed.add(new DefaultEndpoint("other", "http://c"));
+        assertArrayEquals(new String[]{"http://a"}, endpoints.uris("svc"));
+        assertSame(indexed.endpointsOf("svc"), indexed.endpointsOf("svc"));
+
+        final EndpointStat statOfA = endpoints.stats("svc")[0];
+        ((DefaultEndpointStat)statOfA).onStart();
+
+        indexed.add(b);
+        assertArrayEquals(new String[]{"http://a", "http://b"}, endpoints.uris("svc"));
+        //  stat (eg: inflight) kept when membership changed
+        assertSame(statOfA, endpoints.stats("svc")[0]);
+        assertEquals(1, endpoints.stats("svc")[0].inflight());
+
+        assertTrue(indexed.remove(a));
+        assertArrayEquals(new String[]{"http://b"}, endpoints.uris("svc"));
+        assertEquals(2, indexed.size());
+
+        indexed.setEndpoints(Arrays.asList(a));
+        assertArrayEquals(new String[]{"http://a"}, endpoints.uris("svc"));
+        assertEquals(0, endpoints.uris("other").length);
+        assertSame(statOfA, endpoints.stats("svc")[0]);
+    }
+
+    @Test
+    public final void testPreferLocalZoneAndSpillOver() {
+        final IndexedEndpoints indexed = new IndexedEndpoints();
+        final DefaultEndpointSet endpoints = new DefaultEndpointSet(indexed, EndpointSelectors.random());
+        indexed.add(new DefaultEndpoint("svc", "http://a1", 1, "zone-a"));
+        indexed.add(new DefaultEndpoint("svc", "http://a2", 1, "zone-a"));
+        indexed.add(new DefaultEndpoint("svc", "http://b1", 1, "zone-b"));
+        indexed.add(new DefaultEndpoint("svc", "http://b2", 1, "zone-b"));
+        endpoints.setLocalZone("zone-a");
+        endpoints.setMinLocalHealthyPercent(100);
+        endpoints.setMaxLocalInflightPerEndpoint(2);
+        endpoints.setConsecutiveFailures(1);
+
+        final AtomicReference<EndpointSetMXBean> mbean = new AtomicReference<>();
+        endpoints.setMBeanRegister(new MBeanRegister() {
+            @Override
+            public boolean registerMBean(final String suffix, final Object obj) {
+                mbean.set((EndpointSetMXBean)obj);
+                return true;
+            }
+            @Override
+            public void unregisterMBean(final String suffix) {
+            }});
+
+        final AtomicReference<String> uri = new AtomicReference<>();
+        for (int idx = 0; idx < 20; idx++) {
+            endpoints.of(() -> "svc").call(Observable.just(fakeInteract(uri, Observable.never())))
+                .toBlocking().single();
+            assertTrue(uri.get().startsWith("http://a"));
+        }
+        assertEquals("zone-a", mbean.get().getLocalZone());
+        assertEquals(20, mbean.get().getLocalRequestCount());
+        assertEquals(0, mbean.get().getSpilledRequestCount());
+
+        //  local overloaded: 4 inflight for 2 healthy local endpoints
+        final EndpointStat[] stats = endpoints.stats("svc");
+        for (int idx = 0; idx < 2; idx++) {
+            ((DefaultEndpointStat)stats[0]).onStart();
+            ((DefaultEndpointStat)stats[1]).onStart();
+        }
+        endpoints.of(() -> "svc").call(Observable.just(fakeInteract(uri, Observable.never()))).toBlocking().single();
+        assertEquals(1, mbean.get().getSpilledRequestCount());
+        ((DefaultEndpointStat)stats[0]).onEnd();
+
+        //  local unhealthy: a1 ejected, below 100% healthy
+        endpoints.onResult("svc", (DefaultEndpointStat)stats[0], false);
+        assertTrue(stats[0].isEjected());
+        boolean remote = false;
+        for (int idx = 0; idx < 20; idx++) {
+            endpoints.of(() -> "svc").call(Observable.just(fakeInteract(uri, Observable.never())))
+                .toBlocking().single();
+            assertFalse("http://a1".equals(uri.get()));
+            remote |= uri.get().startsWith("http://b");
+        }
+        assertTrue(remote);
+        assertEquals(20, mbean.get().getLocalRequestCount());
+        assertEquals(21, mbean.get().getSpilledRequestCount());
+    }
+
+    private static FullMessage<HttpResponse> responseOf(final HttpResponseStatus status) {
+        final HttpResponse resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        return new FullMessage<HttpResponse>() {
+            @Override
+            public HttpResponse message() {
+                return resp;
+            }
+            @Override
+            public Observable<? extends MessageBody> body() {
+                return Observable.empty();
+            }};
+    }
+
+    private static Interact fakeInteract(final AtomicReference<String> uri,
+            final Observable<? extends FullMessage<HttpResponse>> response) {
+        final Interaction interaction = new Interaction() {
+            @Override
+            public HttpInitiator initiator() {
+                return null;
+            }
+            @Override
+            public Observable<? extends FullMessage<HttpResponse>> execute() {
+                return response;
+            }};
+        return (Interact)Proxy.newProxyInstance(Interact.class.getClassLoader(), new Class<?>[]{Interact.class},
+                (proxy, method, args) -> {
+                    if ("uri".equals(method.getName())) {
+                        uri.set((String)args[0]);
+                    } else if ("execution".equals(method.getName())) {
+                        return Observable.just(interaction);
+                    }
+                    return proxy;
+                });
+    }
+}
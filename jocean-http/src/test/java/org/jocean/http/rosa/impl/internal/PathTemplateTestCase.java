@@ -0,0 +1,73 @@
+package org.jocean.http.rosa.impl.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+
+import org.jocean.http.Feature;
+import org.jocean.http.Feature.FeaturesAware;
+import org.jocean.http.rosa.SignalClient.UsingPath;
+import org.jocean.http.rosa.impl.RequestChanger;
+import org.junit.Test;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class PathTemplateTestCase {
+
+    @Path("/api/{user}/items/{id}{none}/{version}")
+    public static class ItemRequest {
+        @PathParam("user")
+        private String _user = "alice";
+
+        @PathParam("id")
+        private int _id = 42;
+
+        @PathParam("version")
+        public String version() {
+            return "v" + 2;
+        }
+    }
+
+    @Test
+    public final void testCompileAndExpand() {
+        final PathTemplate template = PathTemplate.of(ItemRequest.class, "/api/{user}/items/{id}{none}/{version}");
+        assertSame(template, PathTemplate.of(ItemRequest.class, "/api/{user}/items/{id}{none}/{version}"));
+        assertTrue(template.hasPlaceholder());
+
+        final StringBuilder sb = new StringBuilder(template.sizeHint());
+        template.expand(new ItemRequest(), sb);
+        assertEquals("/api/alice/items/42/v2", sb.toString());
+
+        final PathTemplate literal = PathTemplate.of(ItemRequest.class, "/api/{user");
+        assertFalse(literal.hasPlaceholder());
+        final StringBuilder sb2 = new StringBuilder();
+        literal.expand(new ItemRequest(), sb2);
+        assertEquals("/api/{user", sb2.toString());
+    }
+
+    @Test
+    public final void testSetPathByBeanAndPathSource() {
+        final SetPathPreprocessor preprocessor = new SetPathPreprocessor();
+
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/prefix");
+        preprocessor.call(new ItemRequest()).call(request);
+        assertEquals("/prefix/api/alice/items/42/v2", request.uri());
+
+        final RequestChanger changer = preprocessor.call(new ItemRequest());
+        ((FeaturesAware)changer).setFeatures(new Feature[]{new UsingPath("/{user}/{id}")});
+        final HttpRequest request2 = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/{user}");
+        changer.call(request2);
+        assertEquals("/alice/alice/42", request2.uri());
+
+        final HttpRequest request3 = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/raw");
+        preprocessor.call(null).call(request3);
+        assertEquals("/raw", request3.uri());
+    }
+}
@@ -2,27 +2,48 @@ package org.jocean.http.server.impl;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.jocean.http.ContentUtil;
 import org.jocean.http.Feature;
 import org.jocean.http.MessageUtil;
+import org.jocean.http.WriteCtrl;
 import org.jocean.http.client.HttpClient.HttpInitiator;
+import org.jocean.http.client.impl.BoundedChannelPool;
 import org.jocean.http.client.impl.DefaultHttpClient;
 import org.jocean.http.client.impl.TestChannelCreator;
 import org.jocean.http.client.impl.TestChannelPool;
 import org.jocean.http.server.HttpServerBuilder;
 import org.jocean.http.server.HttpServerBuilder.HttpTrade;
+import org.jocean.http.util.HttpHandlers;
 import org.jocean.http.util.RxNettys;
+import org.jocean.http.util.TransportType;
 import org.jocean.idiom.DisposableWrapper;
 import org.jocean.idiom.ExceptionUtils;
+import org.jocean.idiom.TerminateAware;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,16 +59,24 @@ import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.util.CharsetUtil;
 import rx.Observable;
 import rx.Subscription;
 import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
 
 public class DefaultHttpServerBuilderTestCase {
 
@@ -312,4 +341,352 @@ public class DefaultHttpServerBuilderTestCase {
             server.close();
         }
     }
+
+    private static String requestUriOf(final HttpInitiator initiator, final String uri) {
+        final FullHttpResponse resp = initiator.defineInteraction(
+                Observable.just(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri)))
+                .compose(RxNettys.fullmsg2fullresp(initiator, true))
+                .toBlocking().single().unwrap();
+        return resp.content().toString(CharsetUtil.UTF_8);
+    }
+
+    @Test(timeout=5000)
+    public void testHttp2StreamAsTradeAndHttp1OnSameServer() throws Exception {
+        final String testAddr = UUID.randomUUID().toString();
+        final HttpServerBuilder server = new DefaultHttpServerBuilder(
+                new AbstractBootstrapCreator(
+                new DefaultEventLoopGroup(1), new DefaultEventLoopGroup()) {
+            @Override
+            protected void initializeBootstrap(final ServerBootstrap bootstrap) {
+                bootstrap.option(ChannelOption.SO_BACKLOG, 1024);
+                bootstrap.channel(LocalServerChannel.class);
+            }});
+
+        final BlockingQueue<Object> transports = new ArrayBlockingQueue<>(3);
+        final Subscription testServer =
+                server.defineServer(new LocalAddress(testAddr),
+                Feature.ENABLE_LOGGING,
+                Feature.ENABLE_HTTP2)
+            .subscribe(new Action1<HttpTrade>() {
+                @Override
+                public void call(final HttpTrade trade) {
+                    transports.add(trade.transport());
+                    trade.inbound()
+                    .compose(MessageUtil.AUTOSTEP2DWH)
+                    .compose(RxNettys.message2fullreq(trade))
+                    .subscribe(new Action1<DisposableWrapper<FullHttpRequest>>() {
+                        @Override
+                        public void call(final DisposableWrapper<FullHttpRequest> dwreq) {
+                            final FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK,
+                                    Unpooled.copiedBuffer(dwreq.unwrap().uri(), CharsetUtil.UTF_8));
+                            HttpUtil.setContentLength(response, response.content().readableBytes());
+                            trade.outbound(Observable.<HttpObject>just(response));
+                        }});
+                }});
+
+        final DefaultHttpClient h2client = new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING, Feature.ENABLE_HTTP2);
+        final DefaultHttpClient h1client = new DefaultHttpClient(new TestChannelCreator(),
+                Feature.ENABLE_LOGGING);
+        try (final HttpInitiator initiator1 = h2client.initiator().remoteAddress(new LocalAddress(testAddr))
+                    .build().toBlocking().single();
+             final HttpInitiator initiator2 = h2client.initiator().remoteAddress(new LocalAddress(testAddr))
+                    .build().toBlocking().single();
+             final HttpInitiator initiator3 = h1client.initiator().remoteAddress(new LocalAddress(testAddr))
+                    .build().toBlocking().single()) {
+            assertEquals("/1", requestUriOf(initiator1, "/1"));
+            assertEquals("/2", requestUriOf(initiator2, "/2"));
+            assertEquals("/3", requestUriOf(initiator3, "/3"));
+
+            final Channel stream1 = (Channel)transports.take();
+            final Channel stream2 = (Channel)transports.take();
+            final Channel channel3 = (Channel)transports.take();
+            assertTrue(stream1 instanceof Http2StreamChannel);
+            assertTrue(stream2 instanceof Http2StreamChannel);
+            assertNotSame(stream1, stream2);
+            assertSame(stream1.parent(), stream2.parent());
+            assertFalse(channel3 instanceof Http2StreamChannel);
+        } finally {
+            h2client.close();
+            h1client.close();
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testFlushConsolidationForChunkedResponse() throws Exception {
+        final String testAddr = UUID.randomUUID().toString();
+        final HttpServerBuilder server = new DefaultHttpServerBuilder(
+                new AbstractBootstrapCreator(
+                new DefaultEventLoopGroup(1), new DefaultEventLoopGroup()) {
+            @Override
+            protected void initializeBootstrap(final ServerBootstrap bootstrap) {
+                bootstrap.option(ChannelOption.SO_BACKLOG, 1024);
+                bootstrap.channel(LocalServerChannel.class);
+            }});
+
+        final int chunks = 10;
+        final BlockingQueue<HttpTrade> trades = new ArrayBlockingQueue<>(1);
+        final Subscription testServer =
+                server.defineServer(new LocalAddress(testAddr))
+            .subscribe(new Action1<HttpTrade>() {
+                @Override
+                public void call(final HttpTrade trade) {
+                    trades.add(trade);
+                    trade.writeCtrl().setFlushConsolidation(4, 0);
+                    final HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+                    HttpUtil.setTransferEncodingChunked(response, true);
+                    final HttpObject[] contents = new HttpObject[chunks];
+                    for (int idx = 0; idx < chunks; idx++) {
+                        contents[idx] = new DefaultHttpContent(Unpooled.wrappedBuffer(CONTENT));
+                    }
+                    trade.outbound(trade.inbound().compose(MessageUtil.AUTOSTEP2DWH)
+                            .ignoreElements()
+                            .cast(Object.class)
+                            .concatWith(Observable.<Object>just(response))
+                            .concatWith(Observable.<Object>from(contents))
+                            .concatWith(Observable.<Object>just(LastHttpContent.EMPTY_LAST_CONTENT)));
+                }});
+
+        final DefaultHttpClient client = new DefaultHttpClient(new TestChannelCreator(), new TestChannelPool(1));
+        try (final HttpInitiator initiator = client.initiator().remoteAddress(new LocalAddress(testAddr))
+                    .build().toBlocking().single()) {
+            final FullHttpResponse resp = initiator.defineInteraction(Observable.just(buildFullRequest(CONTENT)))
+                    .compose(RxNettys.fullmsg2fullresp(initiator, true))
+                    .toBlocking().single().unwrap();
+            assertEquals(OK, resp.status());
+
+            final HttpTrade trade = trades.take();
+            TerminateAware.Util.awaitTerminated(trade);
+            final WriteCtrl.FlushStats stats = trade.writeCtrl().flushStats();
+            assertEquals(chunks + 2, stats.writeCount());
+            assertEquals(4, stats.maxWritesPerFlush());
+            //  3 flushes by writes limit, then 1 for outbound completed
+            assertEquals(4, stats.flushCount());
+        } finally {
+            client.close();
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    private static byte[] fileBodyOverTcp(final File file, final Feature... features) throws Exception {
+        final int port;
+        try (final ServerSocket ss = new ServerSocket(0)) {
+            port = ss.getLocalPort();
+        }
+        final DefaultHttpServerBuilder server = new DefaultHttpServerBuilder(1, 1, TransportType.NIO);
+        final Subscription testServer = server.defineServer(new InetSocketAddress("127.0.0.1", port), features)
+            .subscribe(new Action1<HttpTrade>() {
+                @Override
+                public void call(final HttpTrade trade) {
+                    trade.outbound(trade.inbound().compose(MessageUtil.AUTOSTEP2DWH)
+                            .ignoreElements()
+                            .cast(Object.class)
+                            .concatWith(Observable.<Object>just(new DefaultHttpResponse(HTTP_1_1, OK),
+                                    LastHttpContent.EMPTY_LAST_CONTENT))
+                            .compose(MessageUtil.addBody(ContentUtil.tobody("application/octet-stream", file))));
+                }});
+        try {
+            final HttpURLConnection conn =
+                    (HttpURLConnection)new URL("http://127.0.0.1:" + port + "/file").openConnection();
+            try (final InputStream is = conn.getInputStream()) {
+                assertEquals(200, conn.getResponseCode());
+                assertEquals(file.length(), conn.getContentLengthLong());
+                return readAll(is);
+            }
+        } finally {
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    private static byte[] readAll(final InputStream is) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buf = new byte[8192];
+        int read;
+        while ((read = is.read(buf)) >= 0) {
+            bytes.write(buf, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static File createTempFile(final int size) throws IOException {
+        final File file = File.createTempFile("filebody", ".bin");
+        file.deleteOnExit();
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    @Test(timeout=10000)
+    public void testFileBodyAsFileRegion() throws Exception {
+        final File file = createTempFile(1024 * 1024 + 17);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), fileBodyOverTcp(file));
+    }
+
+    @Test(timeout=10000)
+    public void testFileBodyAsChunkedFileWhenCompressorEnabled() throws Exception {
+        final File file = createTempFile(1024 * 1024 + 17);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), fileBodyOverTcp(file, Feature.ENABLE_COMPRESSOR));
+    }
+
+    @Test(timeout=10000)
+    public void testFileResponseWithRange() throws Exception {
+        final File file = createTempFile(256 * 1024);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        final int port;
+        try (final ServerSocket ss = new ServerSocket(0)) {
+            port = ss.getLocalPort();
+        }
+        final DefaultHttpServerBuilder server = new DefaultHttpServerBuilder(1, 1, TransportType.NIO);
+        final Subscription testServer = server.defineServer(new InetSocketAddress("127.0.0.1", port))
+            .subscribe(new Action1<HttpTrade>() {
+                @Override
+                public void call(final HttpTrade trade) {
+                    trade.outbound(trade.inbound().compose(MessageUtil.AUTOSTEP2DWH)
+                            .compose(RxNettys.message2fullreq(trade, true))
+                            .flatMap(new Func1<DisposableWrapper<FullHttpRequest>, Observable<Object>>() {
+                                @Override
+                                public Observable<Object> call(final DisposableWrapper<FullHttpRequest> dwreq) {
+                                    return ContentUtil.fileResponse(dwreq.unwrap(), "application/octet-stream", file);
+                                }}));
+                }});
+        try {
+            final HttpURLConnection partial =
+                    (HttpURLConnection)new URL("http://127.0.0.1:" + port + "/file").openConnection();
+            partial.setRequestProperty("Range", "bytes=1000-100999");
+            try (final InputStream is = partial.getInputStream()) {
+                assertEquals(206, partial.getResponseCode());
+                assertEquals("bytes 1000-100999/" + bytes.length, partial.getHeaderField("Content-Range"));
+                assertArrayEquals(Arrays.copyOfRange(bytes, 1000, 101000), readAll(is));
+            }
+
+            final HttpURLConnection unsatisfiable =
+                    (HttpURLConnection)new URL("http://127.0.0.1:" + port + "/file").openConnection();
+            unsatisfiable.setRequestProperty("Range", "bytes=" + bytes.length + "-");
+            assertEquals(416, unsatisfiable.getResponseCode());
+            assertEquals("bytes */" + bytes.length, unsatisfiable.getHeaderField("Content-Range"));
+
+            final HttpURLConnection whole =
+                    (HttpURLConnection)new URL("http://127.0.0.1:" + port + "/file").openConnection();
+            try (final InputStream is = whole.getInputStream()) {
+                assertEquals(200, whole.getResponseCode());
+                assertEquals("bytes", whole.getHeaderField("Accept-Ranges"));
+                assertArrayEquals(bytes, readAll(is));
+            }
+        } finally {
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testNativeTransportWithFallback() throws Exception {
+        final TransportType transport = TransportType.select(TransportType.EPOLL);
+        final int port;
+        try (final ServerSocket ss = new ServerSocket(0)) {
+            port = ss.getLocalPort();
+        }
+        final DefaultHttpServerBuilder server = new DefaultHttpServerBuilder(1, 1, TransportType.EPOLL);
+        server.setReusePort(true);
+        server.setTcpQuickAck(true);
+        assertEquals(transport, server.getTransport());
+
+        final Subscription testServer = server.defineServer(new InetSocketAddress("127.0.0.1", port))
+                .subscribe(echoReactor(null));
+        final DefaultHttpClient client = new DefaultHttpClient(1, true, TransportType.EPOLL);
+        client.setTcpQuickAck(true);
+        assertEquals(transport, client.getTransport());
+        try (final HttpInitiator initiator = client.initiator()
+                .remoteAddress(new InetSocketAddress("127.0.0.1", port)).build()
+                .toBlocking().single()) {
+            assertEquals(transport.socketChannelType(), initiator.transport().getClass());
+            final FullHttpResponse resp = initiator.defineInteraction(Observable.just(buildFullRequest(CONTENT)))
+                    .compose(RxNettys.fullmsg2fullresp(initiator, true))
+                    .toBlocking().single().unwrap();
+            assertEquals(new String(CONTENT, CharsetUtil.UTF_8), resp.content().toString(CharsetUtil.UTF_8));
+        } finally {
+            client.close();
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testClientWithBoundedChannelPool() throws Exception {
+        final int port;
+        try (final ServerSocket ss = new ServerSocket(0)) {
+            port = ss.getLocalPort();
+        }
+        final DefaultHttpServerBuilder server = new DefaultHttpServerBuilder(1, 1, TransportType.NIO);
+        final Subscription testServer = server.defineServer(new InetSocketAddress("127.0.0.1", port))
+                .subscribe(echoReactor(null));
+        final BoundedChannelPool pool = new BoundedChannelPool(HttpHandlers.ON_CHANNEL_INACTIVE, 1, 1, 0);
+        final DefaultHttpClient client = new DefaultHttpClient(1, TransportType.NIO, pool);
+        try {
+            final HttpInitiator initiator1 = client.initiator()
+                    .remoteAddress(new InetSocketAddress("127.0.0.1", port)).build()
+                    .toBlocking().single();
+            final FullHttpResponse resp = initiator1.defineInteraction(Observable.just(buildFullRequest(CONTENT)))
+                    .compose(RxNettys.fullmsg2fullresp(initiator1, true))
+                    .toBlocking().single().unwrap();
+            assertEquals(new String(CONTENT, CharsetUtil.UTF_8), resp.content().toString(CharsetUtil.UTF_8));
+
+            //  only 1 connection per host, so second initiator pending until first closed
+            final TestSubscriber<HttpInitiator> initiator2 = new TestSubscriber<>();
+            client.initiator().remoteAddress(new InetSocketAddress("127.0.0.1", port)).build()
+                .subscribe(initiator2);
+            initiator2.awaitTerminalEvent(100, TimeUnit.MILLISECONDS);
+            initiator2.assertNoValues();
+            assertEquals(1, pool.getPendingAcquireCount());
+
+            initiator1.close();
+            initiator2.awaitTerminalEvent(1, TimeUnit.SECONDS);
+            initiator2.assertValueCount(1);
+            assertSame(initiator1.transport(), initiator2.getOnNextEvents().get(0).transport());
+            assertEquals(1, pool.getTotalChannelCount());
+            initiator2.getOnNextEvents().get(0).close();
+        } finally {
+            client.close();
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testReusePortAcceptorsShareAddress() throws Exception {
+        final int port;
+        try (final ServerSocket ss = new ServerSocket(0)) {
+            port = ss.getLocalPort();
+        }
+        final DefaultHttpServerBuilder server = new DefaultHttpServerBuilder(2, 1, TransportType.EPOLL);
+        server.setAcceptorCount(2);
+
+        final Subscription testServer = server.defineServer(new InetSocketAddress("127.0.0.1", port))
+                .subscribe(echoReactor(null));
+        try {
+            final int expectedAcceptors = TransportType.EPOLL == server.getTransport() ? 2 : 1;
+            assertEquals(expectedAcceptors, server.getAcceptorCount());
+
+            final int connections = 20;
+            for (int idx = 0; idx < connections; idx++) {
+                new Socket("127.0.0.1", port).close();
+            }
+            long total = 0;
+            while (total < connections) {
+                Thread.sleep(10);
+                total = 0;
+                for (final long count : server.getAcceptedCountPerAcceptor()) {
+                    total += count;
+                }
+            }
+            assertEquals(connections, total);
+        } finally {
+            testServer.unsubscribe();
+            server.close();
+        }
+    }
 }